@@ -0,0 +1,79 @@
+package ru.artemaweirro.rest_api.benchmarks;
+
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Тестовые данные, близкие по размеру к реальным записям каталога и заказов
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Мастер и Маргарита, том " + id);
+        book.setAuthor("Михаил Булгаков");
+        book.setPrice(450 + id % 100);
+        book.setDescription("Роман о визите дьявола в Москву 1930-х годов. Издание " + id
+                + " с комментариями и иллюстрациями, твёрдый переплёт, 480 страниц.");
+        return book;
+    }
+
+    static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            books.add(book(id));
+        }
+        return books;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("reader42");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoO5rQ0Kx1a9u5Gm7i6w1zQ8wVvJmQbY3e");
+        user.setRole(Role.USER);
+        return user;
+    }
+
+    static Order order(int bookCount) {
+        List<Book> books = books(bookCount);
+        Order order = new Order();
+        order.setId(1001L);
+        order.setUser(user());
+        order.setBooks(new LinkedHashSet<>(books));
+        order.setTotalPrice(books.stream().mapToDouble(Book::getPrice).sum());
+        order.setCreatedAt(LocalDateTime.of(2025, 3, 14, 12, 30, 15));
+        return order;
+    }
+
+    // count заказов по booksPerOrder книг, выбранных из каталога в catalogSize книг
+    static List<Order> orders(int count, int booksPerOrder, int catalogSize) {
+        List<Book> catalog = books(catalogSize);
+        User user = user();
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<Book> books = new LinkedHashSet<>();
+            for (int j = 0; j < booksPerOrder; j++) {
+                books.add(catalog.get((i * 7 + j * 13) % catalogSize));
+            }
+            Order order = new Order();
+            order.setId(1000L + i);
+            order.setUser(user);
+            order.setBooks(books);
+            order.setTotalPrice(books.stream().mapToDouble(Book::getPrice).sum());
+            order.setCreatedAt(LocalDateTime.of(2025, 3, 14, 12, 30).minusMinutes(i));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
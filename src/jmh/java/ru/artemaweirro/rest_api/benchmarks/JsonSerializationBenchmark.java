@@ -0,0 +1,96 @@
+package ru.artemaweirro.rest_api.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.artemaweirro.rest_api.dto.CompactOrderPageDTO;
+import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
+import ru.artemaweirro.rest_api.mappers.OrderMapper;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация ответов Jackson: страница каталога (List<Book>) и заказ (OrderInfoDTO)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    // Настройки ObjectMapper те же, что у Spring Boot по умолчанию
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        // Размер страницы каталога: по умолчанию, максимум страницы и выгрузка без пагинации
+        @Param({"20", "100", "1000"})
+        private int bookCount;
+
+        private ObjectWriter writer;
+        private List<Book> books;
+
+        @Setup
+        public void setUp() {
+            writer = OBJECT_MAPPER.writerFor(OBJECT_MAPPER.getTypeFactory()
+                    .constructCollectionType(List.class, Book.class));
+            books = BenchmarkData.books(bookCount);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OrderInfo {
+        // Число книг в заказе
+        @Param({"3", "20"})
+        private int booksPerOrder;
+
+        private OrderInfoDTO order;
+
+        @Setup
+        public void setUp() {
+            order = new OrderMapper().toInfoDto(BenchmarkData.order(booksPerOrder));
+        }
+    }
+
+    // Список заказов администратора: заказы по 3 книги из 50 популярных
+    @State(Scope.Benchmark)
+    public static class OrderList {
+        @Param({"100", "1000"})
+        private int orderCount;
+
+        private List<Order> orders;
+        private final OrderMapper orderMapper = new OrderMapper();
+
+        @Setup
+        public void setUp() {
+            orders = BenchmarkData.orders(orderCount, 3, 50);
+        }
+    }
+
+    @Benchmark
+    public byte[] bookList(Catalog catalog) throws JsonProcessingException {
+        return catalog.writer.writeValueAsBytes(catalog.books);
+    }
+
+    @Benchmark
+    public byte[] orderInfo(OrderInfo orderInfo) throws JsonProcessingException {
+        return OBJECT_MAPPER.writeValueAsBytes(orderInfo.order);
+    }
+
+    // Ответ по умолчанию: книги целиком в каждом заказе
+    @Benchmark
+    public byte[] orderListFull(OrderList orderList) throws JsonProcessingException {
+        List<OrderInfoDTO> items = orderList.orders.stream()
+                .map(orderList.orderMapper::toInfoDto)
+                .toList();
+        return OBJECT_MAPPER.writeValueAsBytes(items);
+    }
+
+    // ?shape=compact: id книг в заказах и общий словарь книг
+    @Benchmark
+    public byte[] orderListCompact(OrderList orderList) throws JsonProcessingException {
+        CompactOrderPageDTO page = orderList.orderMapper.toCompactPage(orderList.orders, null);
+        return OBJECT_MAPPER.writeValueAsBytes(page);
+    }
+}
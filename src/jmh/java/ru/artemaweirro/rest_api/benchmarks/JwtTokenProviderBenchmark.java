@@ -0,0 +1,45 @@
+package ru.artemaweirro.rest_api.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import ru.artemaweirro.rest_api.security.JwtTokenProvider;
+
+import java.util.concurrent.TimeUnit;
+
+// Выдача и проверка JWT: проверка с попаданием в кэш claims и полная (разбор и HMAC)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "3f65ac2fbd9e4a2abfb90278d17a99e1a5b764ed94dddb43b6e6b7a598cbfa13";
+    private static final long VALIDITY = 3_600_000;
+
+    private JwtTokenProvider cachingProvider;
+    // Кэш нулевого размера: каждая проверка проходит полный разбор токена
+    private JwtTokenProvider uncachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingProvider = new JwtTokenProvider(SECRET, VALIDITY, 10_000);
+        uncachedProvider = new JwtTokenProvider(SECRET, VALIDITY, 0);
+        token = cachingProvider.createToken("reader42", "USER");
+        cachingProvider.verify(token);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return cachingProvider.createToken("reader42", "USER");
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return cachingProvider.verify(token);
+    }
+
+    @Benchmark
+    public Claims verifyUncached() {
+        return uncachedProvider.verify(token);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.artemaweirro.rest_api.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
+import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
+import ru.artemaweirro.rest_api.dto.UserInfoDTO;
+import ru.artemaweirro.rest_api.mappers.BookMapper;
+import ru.artemaweirro.rest_api.mappers.OrderMapper;
+import ru.artemaweirro.rest_api.mappers.UserMapper;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.models.User;
+
+import java.util.concurrent.TimeUnit;
+
+// Маппинг сущностей в DTO
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final BookMapper bookMapper = new BookMapper();
+    private final OrderMapper orderMapper = new OrderMapper();
+    private final UserMapper userMapper = new UserMapper();
+
+    private Book book;
+    private BookDTO bookDto;
+    private User user;
+
+    @State(Scope.Benchmark)
+    public static class OrderState {
+        // Число книг в заказе
+        @Param({"3", "20"})
+        private int booksPerOrder;
+
+        private Order order;
+
+        @Setup
+        public void setUp() {
+            order = BenchmarkData.order(booksPerOrder);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        book = BenchmarkData.book(1);
+        bookDto = bookMapper.toDto(book);
+        user = BenchmarkData.user();
+    }
+
+    @Benchmark
+    public BookDTO bookToDto() {
+        return bookMapper.toDto(book);
+    }
+
+    @Benchmark
+    public BookSummaryDTO bookToSummary() {
+        return bookMapper.toSummary(book);
+    }
+
+    @Benchmark
+    public Book bookToEntity() {
+        return bookMapper.toEntity(bookDto);
+    }
+
+    @Benchmark
+    public OrderInfoDTO orderToInfoDto(OrderState state) {
+        return orderMapper.toInfoDto(state.order);
+    }
+
+    @Benchmark
+    public UserInfoDTO userToDto() {
+        return userMapper.toDto(user);
+    }
+}
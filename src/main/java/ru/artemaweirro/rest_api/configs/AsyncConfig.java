@@ -0,0 +1,41 @@
+package ru.artemaweirro.rest_api.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    // Атрибут запроса, асинхронная обработка которого может идти до books.export.timeout.
+    // Остальные асинхронные запросы (вход, регистрация) ограничены стандартным таймаутом
+    public static final String LONG_RUNNING_ATTRIBUTE = AsyncConfig.class.getName() + ".longRunning";
+
+    private final Duration longRunningTimeout;
+
+    public AsyncConfig(@Value("${books.export.timeout:30m}") Duration longRunningTimeout) {
+        this.longRunningTimeout = longRunningTimeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Вызывается до начала асинхронной обработки, когда таймаут запроса ещё можно изменить
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                if (request.getAttribute(LONG_RUNNING_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null
+                        && request instanceof AsyncWebRequest asyncWebRequest) {
+                    asyncWebRequest.setTimeout(longRunningTimeout.toMillis());
+                }
+            }
+        });
+    }
+}
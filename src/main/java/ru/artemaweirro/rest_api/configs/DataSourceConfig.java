@@ -0,0 +1,28 @@
+package ru.artemaweirro.rest_api.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DataSourceConfig {
+
+    // С подключённым R2DBC автоконфигурация JDBC не создаёт пул соединений, увидев ConnectionFactory.
+    // От этого пула зависят JPA, Flyway, метрики Hikari и DataSourceProxyConfig, поэтому он объявлен явно
+    // с теми же настройками spring.datasource.* и spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+}
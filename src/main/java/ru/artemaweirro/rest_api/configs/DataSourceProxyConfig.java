@@ -0,0 +1,33 @@
+package ru.artemaweirro.rest_api.configs;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.artemaweirro.rest_api.service.SqlStatementStats;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceProxyConfig {
+
+    // Оборачивает пул соединений в прокси, замеряющий каждый запрос (вместо show-sql).
+    // Статический метод и ObjectProvider — чтобы постпроцессор не создавал зависимости раньше времени.
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(ObjectProvider<SqlStatementStats> sqlStatementStats) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(sqlStatementStats.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
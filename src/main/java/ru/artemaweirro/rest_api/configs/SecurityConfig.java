@@ -1,5 +1,7 @@
 package ru.artemaweirro.rest_api.configs;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -8,14 +10,19 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import ru.artemaweirro.rest_api.exception.CustomAccessDeniedHandler;
 import ru.artemaweirro.rest_api.exception.CustomAuthenticationEntryPoint;
-import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthRateLimiter;
 import ru.artemaweirro.rest_api.security.JwtAuthenticationFilter;
 import ru.artemaweirro.rest_api.security.JwtTokenProvider;
+import ru.artemaweirro.rest_api.security.RateLimitFilter;
+import ru.artemaweirro.rest_api.service.UserStateCache;
+
+import java.util.Map;
 
 @Configuration
 public class SecurityConfig {
@@ -23,22 +30,31 @@ public class SecurityConfig {
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
     private final CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
-    private final UserRepository userRepository;
+    private final UserStateCache userStateCache;
+    private final AuthRateLimiter authRateLimiter;
+    private final ObjectMapper objectMapper;
+    private final boolean rateLimitEnabled;
 
     public SecurityConfig(JwtTokenProvider jwtTokenProvider,
                           CustomAccessDeniedHandler customAccessDeniedHandler,
                           CustomAuthenticationEntryPoint customAuthenticationEntryPoint,
-                          UserRepository userRepository) {
+                          UserStateCache userStateCache,
+                          AuthRateLimiter authRateLimiter,
+                          ObjectMapper objectMapper,
+                          @Value("${auth.rate-limit.enabled:true}") boolean rateLimitEnabled) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.customAccessDeniedHandler = customAccessDeniedHandler;
         this.customAuthenticationEntryPoint = customAuthenticationEntryPoint;
-        this.userRepository = userRepository;
+        this.userStateCache = userStateCache;
+        this.authRateLimiter = authRateLimiter;
+        this.objectMapper = objectMapper;
+        this.rateLimitEnabled = rateLimitEnabled;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         JwtAuthenticationFilter jwtAuthenticationFilter =
-                new JwtAuthenticationFilter(jwtTokenProvider, userRepository);
+                new JwtAuthenticationFilter(jwtTokenProvider, userStateCache);
 
         http
                 .csrf(AbstractHttpConfigurer::disable)
@@ -46,11 +62,15 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/login/", "/api/auth/register/").permitAll()  // Для регистрации и логина
                         .requestMatchers("/api/orders/**", "api/users/me/" ).authenticated() // Заказы могут смотреть авторизованные
                         .requestMatchers(HttpMethod.GET, "/api/books/**").permitAll() // Все могут посмотреть книги
+                        .requestMatchers(HttpMethod.GET, "/api/reactive/books/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/books/**").hasAnyRole("MODERATOR", "ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/books/**").hasAnyRole("MODERATOR", "ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/api/books/**").hasAnyRole("MODERATOR", "ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/books/**").hasAnyRole("MODERATOR", "ADMIN")
                         .requestMatchers(  "/api/users/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // Метрики для Prometheus
                         .anyRequest().permitAll()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
@@ -59,6 +79,11 @@ public class SecurityConfig {
                         .accessDeniedHandler(customAccessDeniedHandler)
                 );
 
+        // Лимит частоты входа и регистрации проверяется до разбора JWT
+        if (rateLimitEnabled) {
+            http.addFilterBefore(new RateLimitFilter(authRateLimiter, objectMapper), JwtAuthenticationFilter.class);
+        }
+
         return http.build();
     }
 
@@ -67,8 +92,14 @@ public class SecurityConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    // Новые хеши сохраняются с префиксом {bcrypt} и текущей стоимостью. Старые хеши без префикса
+    // проверяются BCrypt и при успешном входе перехешируются (как и хеши с меньшей стоимостью),
+    // см. CustomUserDetailsService.updatePassword
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package ru.artemaweirro.rest_api.configs;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+@Configuration
+public class TransactionConfig {
+
+    // С подключённым R2DBC автоконфигурация JPA не создаёт свой менеджер транзакций, увидев реактивный.
+    // Явный основной JpaTransactionManager оставляет @Transactional на JPA; R2DBC используется только для чтения.
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.artemaweirro.rest_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.artemaweirro.rest_api.dto.CacheStatsDTO;
+import ru.artemaweirro.rest_api.dto.HashingStatsDTO;
+import ru.artemaweirro.rest_api.dto.SqlStatementStatsDTO;
+import ru.artemaweirro.rest_api.service.BookCache;
+import ru.artemaweirro.rest_api.service.PasswordHashingExecutor;
+import ru.artemaweirro.rest_api.service.SqlStatementStats;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/")
+public class AdminController {
+    private final BookCache bookCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final SqlStatementStats sqlStatementStats;
+
+    public AdminController(BookCache bookCache, PasswordHashingExecutor passwordHashingExecutor,
+                           SqlStatementStats sqlStatementStats) {
+        this.bookCache = bookCache;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.sqlStatementStats = sqlStatementStats;
+    }
+
+    @Operation(
+            summary = "Статистика кэша книг (только для администратора)",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Счётчики кэша",
+                            content = @Content(schema = @Schema(implementation = CacheStatsDTO.class))
+                    )
+            }
+    )
+    @GetMapping("cache/books/")
+    public CacheStatsDTO getBookCacheStats() {
+        return bookCache.stats();
+    }
+
+    @Operation(
+            summary = "Состояние пула хеширования паролей (только для администратора)",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Размер очереди, число отклонённых задач и время хеширования",
+                            content = @Content(schema = @Schema(implementation = HashingStatsDTO.class))
+                    )
+            }
+    )
+    @GetMapping("auth/hashing/")
+    public HashingStatsDTO getHashingStats() {
+        return passwordHashingExecutor.stats();
+    }
+
+    @Operation(
+            summary = "Статистика SQL-запросов (только для администратора)",
+            description = "Количество, суммарное, среднее и максимальное время по каждому виду запроса, " +
+                    "по убыванию суммарного времени",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Сводка по запросам",
+                            content = @Content(schema = @Schema(implementation = SqlStatementStatsDTO.class))
+                    )
+            }
+    )
+    @GetMapping("sql/")
+    public List<SqlStatementStatsDTO> getSqlStats() {
+        return sqlStatementStats.stats();
+    }
+
+    @Operation(
+            summary = "Сбросить статистику SQL-запросов (только для администратора)",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Статистика сброшена")
+            }
+    )
+    @DeleteMapping("sql/")
+    public ResponseEntity<Void> resetSqlStats() {
+        sqlStatementStats.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
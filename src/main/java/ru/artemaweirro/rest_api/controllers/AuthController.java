@@ -4,13 +4,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,27 +20,57 @@ import ru.artemaweirro.rest_api.models.Role;
 import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
 import ru.artemaweirro.rest_api.security.JwtTokenProvider;
+import ru.artemaweirro.rest_api.service.CustomUserDetailsService;
+import ru.artemaweirro.rest_api.service.PasswordHashingExecutor;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth/")
 public class AuthController {
+    // Через сколько секунд повторить вход или регистрацию при перегрузке
+    private static final String RETRY_AFTER_SECONDS = "1";
 
-    private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
     private final UserRepository userRepository;
+    private final CustomUserDetailsService customUserDetailsService;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    // Работа с БД после хеширования (сохранение пользователя, перехешированного пароля) — вне пула
+    // хеширования: медленная БД не должна задерживать проверку паролей других запросов
+    private final Executor taskExecutor;
+    // Хеш для сверки пароля несуществующего пользователя (вычисляется в пуле хеширования при первой надобности)
+    private volatile String userNotFoundHash;
 
-    public AuthController(AuthenticationManager authenticationManager,
-                          JwtTokenProvider jwtTokenProvider,
+    // Результат проверки пароля; newHash — новый хеш, если прежний устарел
+    private record PasswordCheck(boolean matches, String newHash) {
+    }
+
+    public AuthController(JwtTokenProvider jwtTokenProvider,
                           UserRepository userRepository,
-                          PasswordEncoder passwordEncoder) {
-        this.authenticationManager = authenticationManager;
+                          CustomUserDetailsService customUserDetailsService,
+                          PasswordEncoder passwordEncoder,
+                          PasswordHashingExecutor passwordHashingExecutor,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                          Executor taskExecutor) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userRepository = userRepository;
+        this.customUserDetailsService = customUserDetailsService;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.taskExecutor = taskExecutor;
+    }
+
+    // Пул хеширования переполнен — клиенту предлагается повторить запрос позже
+    private static ResponseEntity<?> overloaded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(Map.of("error", "Сервис входа перегружен, повторите попытку позже"));
     }
 
     @Operation(
@@ -59,25 +87,59 @@ public class AuthController {
                             description = "Пользователь с таким именем уже зарегистрирован",
                             content = @Content(schema = @Schema(
                                     example = "{\"error\": \"Пользователь с таким именем уже зарегистрирован\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Слишком много одновременных запросов входа и регистрации",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Сервис входа перегружен, повторите попытку позже\"}"))
                     )
             }
     )
     @PostMapping("login/")
-    public ResponseEntity<?> login(@RequestBody AuthRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody AuthRequest request) {
+        // Пользователь ищется в потоке запроса; в пуле хеширования — только проверка пароля,
+        // после неё поток запроса уже свободен
+        Optional<User> user = userRepository.findByUsername(request.getUsername());
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
+            return passwordHashingExecutor.submit(() -> checkPassword(request.getPassword(), user))
+                    .thenApplyAsync(check -> completeLogin(user, check), taskExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(overloaded());
+        }
+    }
+
+    // Выполняется в пуле хеширования. Пароль несуществующего пользователя тоже сверяется (с заранее
+    // вычисленным хешем), чтобы время ответа не выдавало, есть ли такой пользователь. Если хеш пароля
+    // устарел (другая стоимость BCrypt или хеш без префикса алгоритма), вычисляется новый
+    private PasswordCheck checkPassword(String password, Optional<User> user) {
+        String hash = user.map(User::getPassword).orElseGet(this::userNotFoundHash);
+        if (password == null || hash == null || !passwordEncoder.matches(password, hash) || user.isEmpty()) {
+            return new PasswordCheck(false, null);
+        }
+        return new PasswordCheck(true, passwordEncoder.upgradeEncoding(hash) ? passwordEncoder.encode(password) : null);
+    }
 
-            User user = userRepository.findByUsername(request.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
+    private String userNotFoundHash() {
+        if (userNotFoundHash == null) {
+            userNotFoundHash = passwordEncoder.encode("userNotFoundPassword");
+        }
+        return userNotFoundHash;
+    }
 
-            String token = jwtTokenProvider.createToken(user.getUsername(), user.getRole().name());
-            return ResponseEntity.ok(new AuthResponse(token));
-        } catch (AuthenticationException e) {
+    private ResponseEntity<?> completeLogin(Optional<User> userOpt, PasswordCheck check) {
+        if (!check.matches()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Collections.singletonMap("error", "Неверный логин или пароль"));
         }
+
+        User user = userOpt.orElseThrow();
+        if (check.newHash() != null) {
+            customUserDetailsService.updatePassword(user, check.newHash());
+        }
+
+        String token = jwtTokenProvider.createToken(user.getUsername(), user.getRole().name());
+        return ResponseEntity.ok(new AuthResponse(token));
     }
 
     @Operation(
@@ -93,19 +155,34 @@ public class AuthController {
                             description = "Пользователь с таким именем уже зарегистрирован",
                             content = @Content(schema = @Schema(
                                     example = "{\"error\": \"Пользователь с таким именем уже зарегистрирован\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Слишком много одновременных запросов входа и регистрации",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Сервис входа перегружен, повторите попытку позже\"}"))
                     )
             }
     )
     @PostMapping("register/")
-    public ResponseEntity<?> register(@RequestBody AuthRequest request) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody AuthRequest request) {
         if (userRepository.findByUsername(request.getUsername()).isPresent()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "Пользователь с таким именем уже зарегистрирован"));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Пользователь с таким именем уже зарегистрирован")));
+        }
+
+        try {
+            return passwordHashingExecutor.submit(() -> passwordEncoder.encode(request.getPassword()))
+                    .thenApplyAsync(passwordHash -> createUser(request.getUsername(), passwordHash), taskExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(overloaded());
         }
+    }
 
+    private ResponseEntity<?> createUser(String username, String passwordHash) {
         User newUser = new User();
-        newUser.setUsername(request.getUsername());
-        newUser.setPassword(passwordEncoder.encode(request.getPassword()));
+        newUser.setUsername(username);
+        newUser.setPassword(passwordHash);
         newUser.setRole(Role.USER); // назначаем базовую роль
 
         userRepository.save(newUser);
@@ -113,4 +190,4 @@ public class AuthController {
         String token = jwtTokenProvider.createToken(newUser.getUsername(), newUser.getRole().name());
         return ResponseEntity.status(HttpStatus.CREATED).body(new AuthResponse(token));
     }
-}
\ No newline at end of file
+}
@@ -4,32 +4,80 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.artemaweirro.rest_api.configs.AsyncConfig;
 import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.BookImportResultDTO;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
+import ru.artemaweirro.rest_api.dto.CursorPageDTO;
 import ru.artemaweirro.rest_api.mappers.BookMapper;
+import ru.artemaweirro.rest_api.mappers.CursorCodec;
 import ru.artemaweirro.rest_api.models.Book;
 import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.BookRepository;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.service.BookCache;
+import ru.artemaweirro.rest_api.service.BookExportService;
+import ru.artemaweirro.rest_api.service.BookImportService;
+import ru.artemaweirro.rest_api.service.BookSearchIndex;
+import ru.artemaweirro.rest_api.service.CatalogVersion;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api/books/")
 public class BookController {
+    // Максимальный размер ответа без пагинации
+    public static final int LEGACY_LIST_LIMIT = 1000;
+    // Размер страницы по умолчанию и максимальный размер страницы
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Количество результатов поиска по умолчанию
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
+    // Поля, по которым доступна сортировка страниц
+    private static final List<String> PAGE_SORTS = List.of("id", "title", "price");
+    // Представления книг в списках: полное (сущность) или краткое (id, название, автор, цена)
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_SUMMARY = "summary";
+    private static final List<String> VIEWS = List.of(VIEW_FULL, VIEW_SUMMARY);
+    // Клиент может хранить ответ, но обязан перепроверять его через If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
     private final BookMapper bookMapper;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCache bookCache;
+    private final CatalogVersion catalogVersion;
+    private final BookExportService bookExportService;
+    private final BookImportService bookImportService;
 
-    public BookController(BookRepository bookRepository, UserRepository userRepository, BookMapper bookMapper) {
+    public BookController(BookRepository bookRepository, UserRepository userRepository, BookMapper bookMapper,
+                          BookSearchIndex bookSearchIndex, BookCache bookCache, CatalogVersion catalogVersion,
+                          BookExportService bookExportService, BookImportService bookImportService) {
         this.bookRepository = bookRepository;
         this.userRepository = userRepository;
         this.bookMapper = bookMapper;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookCache = bookCache;
+        this.catalogVersion = catalogVersion;
+        this.bookExportService = bookExportService;
+        this.bookImportService = bookImportService;
     }
 
     // Идентификация пользователя, сделавшего запрос
@@ -44,10 +92,197 @@ public class BookController {
     }
 
 
-    @Operation(summary = "Получить список книг")
+    @Operation(
+            summary = "Получить список книг",
+            description = "Без параметров after/limit возвращает список (не более " + LEGACY_LIST_LIMIT + " книг). " +
+                    "С параметрами after/limit возвращает страницу {items, next}, где next — курсор следующей страницы. " +
+                    "Сортировка sort: id, title или price. " +
+                    "view=summary возвращает только id, название, автора и цену",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Книги получены",
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Некорректные параметры пагинации",
+                            content = @Content(schema = @Schema(example = "{\"error\": \"Некорректный курсор\"}"))
+                    )
+            }
+    )
     @GetMapping
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "id") String sort,
+                                         @RequestParam(defaultValue = VIEW_FULL) String view,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                         String ifNoneMatch) {
+        if (!PAGE_SORTS.contains(sort)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Сортировка возможна только по полям: " + String.join(", ", PAGE_SORTS)));
+        }
+        if (!VIEWS.contains(view)) {
+            return invalidView();
+        }
+        boolean summary = VIEW_SUMMARY.equals(view);
+        boolean legacy = after == null && limit == null;
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (!legacy && (pageSize < 1 || pageSize > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE));
+        }
+
+        // Каталог не менялся с прошлого запроса этой же страницы — отвечаем 304 без обращения к БД.
+        // ETag у каждой страницы свой: сортировка, вид, курсор и размер входят в тег
+        String etag = catalogVersion.etag("books:" + sort + ":" + view + ":"
+                + (legacy ? "all" : (after == null ? "" : URLEncoder.encode(after, StandardCharsets.UTF_8)) + ":" + pageSize));
+        if (CatalogVersion.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+
+        // Старое поведение: список без курсора, но с жёстким ограничением размера
+        if (legacy) {
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                    .body(summary ? findSummaryPage(sort, null, LEGACY_LIST_LIMIT) : findPage(sort, null, LEGACY_LIST_LIMIT));
+        }
+
+        List<?> books;
+        try {
+            // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+            books = summary ? findSummaryPage(sort, after, pageSize + 1) : findPage(sort, after, pageSize + 1);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Некорректный курсор"));
+        }
+
+        String next = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            next = cursorOf(books.get(pageSize - 1), sort);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                .body(new CursorPageDTO<>(books, next));
+    }
+
+    private ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    private static ResponseEntity<Object> invalidView() {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", "Параметр view должен быть " + String.join(" или ", VIEWS)));
+    }
+
+    // Выборка страницы книг после позиции курсора (after == null — с начала)
+    private List<Book> findPage(String sort, String after, int size) {
+        Limit pageLimit = Limit.of(size);
+        switch (sort) {
+            case "title" -> {
+                if (after == null) {
+                    return bookRepository.findAllByOrderByTitleAscIdAsc(pageLimit);
+                }
+                String[] position = CursorCodec.decode(after);
+                return bookRepository.findPageByTitleAfter(position[0], Long.valueOf(position[1]), pageLimit);
+            }
+            case "price" -> {
+                if (after == null) {
+                    return bookRepository.findAllByOrderByPriceAscIdAsc(pageLimit);
+                }
+                String[] position = CursorCodec.decode(after);
+                return bookRepository.findPageByPriceAfter(
+                        Double.parseDouble(position[0]), Long.valueOf(position[1]), pageLimit);
+            }
+            default -> {
+                // Для сортировки по id курсор — это просто id последней книги
+                long afterId = after == null ? 0L : Long.parseLong(after);
+                return bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, pageLimit);
+            }
+        }
+    }
+
+    // То же, что findPage, но из БД читаются только поля краткого представления
+    private List<BookSummaryDTO> findSummaryPage(String sort, String after, int size) {
+        Limit pageLimit = Limit.of(size);
+        switch (sort) {
+            case "title" -> {
+                if (after == null) {
+                    return bookRepository.findSummaryPageOrderByTitle(pageLimit);
+                }
+                String[] position = CursorCodec.decode(after);
+                return bookRepository.findSummaryPageByTitleAfter(position[0], Long.valueOf(position[1]), pageLimit);
+            }
+            case "price" -> {
+                if (after == null) {
+                    return bookRepository.findSummaryPageOrderByPrice(pageLimit);
+                }
+                String[] position = CursorCodec.decode(after);
+                return bookRepository.findSummaryPageByPriceAfter(
+                        Double.parseDouble(position[0]), Long.valueOf(position[1]), pageLimit);
+            }
+            default -> {
+                long afterId = after == null ? 0L : Long.parseLong(after);
+                return bookRepository.findSummaryPageByIdAfter(afterId, pageLimit);
+            }
+        }
+    }
+
+    // Курсор, указывающий на последнюю книгу страницы (Book или BookSummaryDTO)
+    private static String cursorOf(Object last, String sort) {
+        Long id;
+        String title;
+        double price;
+        if (last instanceof Book book) {
+            id = book.getId();
+            title = book.getTitle();
+            price = book.getPrice();
+        } else {
+            BookSummaryDTO summary = (BookSummaryDTO) last;
+            id = summary.getId();
+            title = summary.getTitle();
+            price = summary.getPrice();
+        }
+
+        return switch (sort) {
+            case "title" -> CursorCodec.encode(title, id);
+            case "price" -> CursorCodec.encode(price, id);
+            default -> String.valueOf(id);
+        };
+    }
+
+    @Operation(
+            summary = "Выгрузить весь каталог",
+            description = "format=ndjson (по умолчанию) — одна книга в строке; format=json — JSON-массив. " +
+                    "Ответ передаётся потоком по мере чтения из БД",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Каталог выгружается"
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Неизвестный формат выгрузки"
+                    )
+            }
+    )
+    @GetMapping({"export", "export/"})
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format,
+                                                             HttpServletRequest request) {
+        boolean ndjson = switch (format) {
+            case "ndjson" -> true;
+            case "json" -> false;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Формат выгрузки должен быть ndjson или json");
+        };
+
+        // Таймаут books.export.timeout вместо стандартного — только для выгрузки
+        request.setAttribute(AsyncConfig.LONG_RUNNING_ATTRIBUTE, Boolean.TRUE);
+        StreamingResponseBody body = out -> bookExportService.export(out, ndjson);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books." + (ndjson ? "ndjson" : "json") + "\"")
+                .body(body);
     }
 
     @Operation(
@@ -66,9 +301,19 @@ public class BookController {
             }
     )
     @GetMapping("{id}/")
-    public ResponseEntity<?> getBookById(@PathVariable Long id) {
-        return bookRepository.findById(id)
-                .<ResponseEntity<?>>map(book -> ResponseEntity.ok(bookMapper.toDto(book)))
+    public ResponseEntity<?> getBookById(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                         String ifNoneMatch) {
+        String etag = catalogVersion.etag("book-" + id);
+        if (CatalogVersion.matchesTag(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+
+        // "*" совпадает только с существующей книгой, поэтому проверяется после её поиска
+        return bookCache.get(id, key -> bookRepository.findById(key).map(bookMapper::toDto))
+                .<ResponseEntity<?>>map(dto -> CatalogVersion.isWildcard(ifNoneMatch)
+                        ? notModified(etag)
+                        : ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(dto))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "Книга не найдена")));
     }
@@ -91,8 +336,50 @@ public class BookController {
     )
     @PostMapping
     public Book addBook(@Valid @RequestBody BookDTO bookDTO) {
-        Book book = bookMapper.toEntity(bookDTO);
-        return bookRepository.save(book);
+        Book book = bookRepository.save(bookMapper.toEntity(bookDTO));
+        catalogVersion.bump();
+        bookSearchIndex.index(book);
+        return book;
+    }
+
+    @Operation(
+            summary = "Массовый импорт книг",
+            description = "Тело — CSV (text/csv, первая строка — заголовок с колонками title, author, price, " +
+                    "description) или NDJSON (application/x-ndjson, по одной книге в строке). " +
+                    "Строки проверяются как BookDTO и вставляются порциями по batchSize; " +
+                    "в ответе — итог по каждой порции с ошибками строк",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Импорт выполнен",
+                            content = @Content(schema = @Schema(implementation = BookImportResultDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Некорректный размер порции или заголовок CSV",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Заголовок CSV должен содержать колонки: title, author, price, description\"}"))
+                    )
+            }
+    )
+    @PostMapping(value = "import/", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         @RequestParam(defaultValue = "" + BookImportService.DEFAULT_BATCH_SIZE)
+                                         int batchSize,
+                                         InputStream body) throws IOException {
+        if (batchSize < 1 || batchSize > BookImportService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр batchSize должен быть от 1 до " + BookImportService.MAX_BATCH_SIZE));
+        }
+
+        BookImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? BookImportService.Format.NDJSON
+                : BookImportService.Format.CSV;
+        try {
+            return ResponseEntity.ok(bookImportService.importBooks(body, format, batchSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @Operation(
@@ -116,6 +403,9 @@ public class BookController {
                 .<ResponseEntity<?>>map(book -> {
                     bookMapper.updateEntityFromDto(updateBookDTO, book);
                     bookRepository.save(book); // сохраняем обновлённую книгу
+                    catalogVersion.bump();
+                    bookCache.invalidate(id);
+                    bookSearchIndex.index(book);
                     return ResponseEntity.ok(bookMapper.toDto(book)); // возвращаем DTO
                 })
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Книга не найдена"))
@@ -175,6 +465,9 @@ public class BookController {
         }
 
         bookRepository.save(book);
+        catalogVersion.bump();
+        bookCache.invalidate(id);
+        bookSearchIndex.index(book);
         return ResponseEntity.ok(book);
     }
 
@@ -201,6 +494,9 @@ public class BookController {
         }
         // Удаляем книгу
         bookRepository.deleteById(id);
+        catalogVersion.bump();
+        bookCache.invalidate(id);
+        bookSearchIndex.remove(id);
         // Возвращаем ответ
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
@@ -222,12 +518,87 @@ public class BookController {
             }
     )
     @GetMapping("by-title/")
-    public ResponseEntity<Object> getBooksByTitle(@RequestParam String title) {
-        List<Book> books = bookRepository.findByTitleContainingIgnoreCase(title);
+    public ResponseEntity<Object> getBooksByTitle(@RequestParam String title,
+                                                  @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+                                                  @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE));
+        }
+        if (!VIEWS.contains(view)) {
+            return invalidView();
+        }
+        boolean summary = VIEW_SUMMARY.equals(view);
+
+        List<?> books;
+        if (bookSearchIndex.isReady()) {
+            // Краткие представления уже лежат в индексе — в БД идём только за полными книгами
+            List<BookSummaryDTO> found = bookSearchIndex.searchByTitle(title, limit);
+            books = summary ? found : findAllInOrder(found);
+        } else {
+            // Индекс ещё строится — ищем напрямую в БД
+            List<Book> found = bookRepository.findByTitleContainingIgnoreCase(title).stream()
+                    .limit(limit)
+                    .toList();
+            books = summary ? found.stream().map(bookMapper::toSummary).toList() : found;
+        }
+
         if (books.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Collections.singletonMap("error", "Книг с данным названием не найдено"));
         }
         return ResponseEntity.ok(books);
     }
+
+    @Operation(
+            summary = "Найти книги по названию или автору",
+            description = "Поиск по подстроке в названии и авторе; совпадения в названии выводятся первыми",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Книги найдены",
+                            content = @Content(schema = @Schema(implementation = BookDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Поисковый индекс ещё строится",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Поиск временно недоступен, повторите позже\"}"))
+                    )
+            }
+    )
+    @GetMapping("search/")
+    public ResponseEntity<Object> searchBooks(@RequestParam String q,
+                                              @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+                                              @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE));
+        }
+        if (!VIEWS.contains(view)) {
+            return invalidView();
+        }
+        if (!bookSearchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Поиск временно недоступен, повторите позже"));
+        }
+        List<BookSummaryDTO> found = bookSearchIndex.searchByTitleOrAuthor(q, limit);
+        return ResponseEntity.ok(VIEW_SUMMARY.equals(view) ? found : findAllInOrder(found));
+    }
+
+    // Загрузка полных книг с сохранением порядка, в котором их вернул поиск
+    private List<Book> findAllInOrder(List<BookSummaryDTO> found) {
+        if (found.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = found.stream().map(BookSummaryDTO::getId).toList();
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            byId.put(book.getId(), book);
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 }
@@ -6,84 +6,230 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import ru.artemaweirro.rest_api.dto.CursorPageDTO;
 import ru.artemaweirro.rest_api.dto.OrderDTO;
 import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
 import ru.artemaweirro.rest_api.dto.OrderRequestDTO;
+import ru.artemaweirro.rest_api.dto.OrderTicketDTO;
+import ru.artemaweirro.rest_api.mappers.CursorCodec;
 import ru.artemaweirro.rest_api.mappers.OrderMapper;
 import ru.artemaweirro.rest_api.models.Book;
 import ru.artemaweirro.rest_api.models.Order;
-import ru.artemaweirro.rest_api.models.Role;
 import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.BookRepository;
 import ru.artemaweirro.rest_api.repositories.OrderRepository;
+import ru.artemaweirro.rest_api.repositories.OrderSpecifications;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthenticatedUser;
+import ru.artemaweirro.rest_api.service.IdempotencyStore;
+import ru.artemaweirro.rest_api.service.OrderPlacementQueue;
+import ru.artemaweirro.rest_api.service.UserStateCache;
 
+import java.net.URI;
 import java.security.Principal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders/")
 public class OrderController {
+    // Максимальный размер ответа без пагинации
+    public static final int LEGACY_LIST_LIMIT = 1000;
+    // Размер страницы по умолчанию и максимальный размер страницы
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Вид списка: full — книги целиком в каждом заказе, compact — id книг и общий словарь книг
+    private static final String SHAPE_FULL = "full";
+    private static final String SHAPE_COMPACT = "compact";
+    private static final List<String> SHAPES = List.of(SHAPE_FULL, SHAPE_COMPACT);
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
     private final OrderMapper orderMapper;
+    private final UserStateCache userStateCache;
+    private final OrderPlacementQueue orderPlacementQueue;
+    private final IdempotencyStore idempotencyStore;
 
     @Autowired
     public OrderController(OrderRepository orderRepository,
                            UserRepository userRepository,
                            BookRepository bookRepository,
-                           OrderMapper orderMapper) {
+                           OrderMapper orderMapper,
+                           UserStateCache userStateCache,
+                           OrderPlacementQueue orderPlacementQueue,
+                           IdempotencyStore idempotencyStore) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.bookRepository = bookRepository;
         this.orderMapper = orderMapper;
+        this.userStateCache = userStateCache;
+        this.orderPlacementQueue = orderPlacementQueue;
+        this.idempotencyStore = idempotencyStore;
     }
 
-    // Идентификация пользователя, сделавшего запрос
-    public User getCurrentUser(Principal principal) {
+    // Идентификация пользователя, сделавшего запрос (без обращения к БД — см. UserStateCache)
+    public AuthenticatedUser getCurrentUser(Principal principal) {
         if (principal == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Пользователь не авторизован");
         }
 
-        String username = principal.getName();
-        return userRepository.findByUsername(username)
+        return userStateCache.resolve(principal)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Пользователь не найден"));
     }
 
+    // Выполнение запроса с заголовком Idempotency-Key: повтор с тем же ключом получает ответ первого выполнения
+    private ResponseEntity<?> withIdempotencyKey(String idempotencyKey, AuthenticatedUser currentUser, String scope,
+                                                 OrderRequestDTO orderRequestDTO,
+                                                 Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (!IdempotencyStore.isValidKey(idempotencyKey)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Заголовок " + IdempotencyStore.HEADER + " должен содержать от 1 до "
+                            + IdempotencyStore.MAX_KEY_LENGTH + " символов"));
+        }
+        return idempotencyStore.execute(currentUser.id(), idempotencyKey, scope, orderRequestDTO, action);
+    }
+
 
     @Operation(
-            summary = "Получить все заказы (только для управляющих)",
+            summary = "Получить заказы (все — для управляющих, свои — для остальных)",
+            description = "Фильтры: userId, createdFrom/createdTo (ISO дата-время), minTotal/maxTotal. " +
+                    "Без параметров after/limit возвращает список (не более " + LEGACY_LIST_LIMIT + " заказов). " +
+                    "С параметрами after/limit возвращает страницу {items, next}, где next — курсор следующей страницы. " +
+                    "При shape=compact заказы содержат bookIds, а книги возвращаются один раз в словаре books: " +
+                    "{items, books, next}. Заказы упорядочены от новых к старым",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Заказы получены",
-                            content = @Content(schema = @Schema(implementation = OrderDTO.class))
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Некорректные параметры фильтра или пагинации",
+                            content = @Content(schema = @Schema(example = "{\"error\": \"Некорректный курсор\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403",
+                            description = "Запрошены чужие заказы",
+                            content = @Content(schema = @Schema(example = "{\"error\": \"Доступ запрещён: это не ваш заказ\"}"))
                     )
             }
     )
     @GetMapping
-    public ResponseEntity<?> getAllOrders(Principal principal) {
-        User currentUser = getCurrentUser(principal);
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) Long userId,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                                          @RequestParam(required = false) Double minTotal,
+                                          @RequestParam(required = false) Double maxTotal,
+                                          @RequestParam(required = false) String after,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(defaultValue = SHAPE_FULL) String shape,
+                                          Principal principal) {
+        AuthenticatedUser currentUser = getCurrentUser(principal);
+
+        boolean isAdminOrModerator = currentUser.isAdminOrModerator();
+
+        // Остальные пользователи видят только свои заказы
+        if (!isAdminOrModerator) {
+            if (userId != null && !userId.equals(currentUser.id())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Доступ запрещён: это не ваш заказ"));
+            }
+            userId = currentUser.id();
+        }
 
-        boolean isAdminOrModerator = currentUser.getRole() == Role.ADMIN || currentUser.getRole() == Role.MODERATOR;
+        return listOrders(userId, createdFrom, createdTo, minTotal, maxTotal, after, limit, shape);
+    }
 
-        List<Order> orders = isAdminOrModerator
-                ? orderRepository.findAll()
-                : orderRepository.findByUserId(currentUser.getId());
+    // Общая часть списков заказов: проверка фильтров, keyset-пагинация и маппинг в OrderInfoDTO
+    // (или в компактный вид)
+    private ResponseEntity<?> listOrders(Long userId,
+                                         LocalDateTime createdFrom,
+                                         LocalDateTime createdTo,
+                                         Double minTotal,
+                                         Double maxTotal,
+                                         String after,
+                                         Integer limit,
+                                         String shape) {
+        if (!SHAPES.contains(shape)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр shape должен быть " + String.join(" или ", SHAPES)));
+        }
+        boolean compact = SHAPE_COMPACT.equals(shape);
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр createdFrom не может быть позже createdTo"));
+        }
+        if (minTotal != null && maxTotal != null && minTotal > maxTotal) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр minTotal не может быть больше maxTotal"));
+        }
+
+        Specification<Order> filter = OrderSpecifications.filter(userId, createdFrom, createdTo, minTotal, maxTotal);
+
+        // Старое поведение: список без курсора, но с жёстким ограничением размера
+        if (after == null && limit == null) {
+            List<Order> orders = orderRepository.findPage(filter, LEGACY_LIST_LIMIT);
+            if (compact) {
+                return ResponseEntity.ok(orderMapper.toCompactPage(orders, null));
+            }
+            return ResponseEntity.ok(orders.stream()
+                    .map(orderMapper::toInfoDto)
+                    .toList());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE));
+        }
+
+        if (after != null) {
+            try {
+                String[] position = CursorCodec.decode(after);
+                filter = filter.and(OrderSpecifications.before(
+                        LocalDateTime.parse(position[0]), Long.valueOf(position[1])));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Некорректный курсор"));
+            }
+        }
+
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<Order> orders = orderRepository.findPage(filter, pageSize + 1);
 
-        List<OrderInfoDTO> orderDTOs = orders.stream()
+        String next = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            next = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+        if (compact) {
+            return ResponseEntity.ok(orderMapper.toCompactPage(orders, next));
+        }
+        List<OrderInfoDTO> items = orders.stream()
                 .map(orderMapper::toInfoDto)
                 .toList();
-
-        return ResponseEntity.ok(orderDTOs);
+        return ResponseEntity.ok(new CursorPageDTO<>(items, next));
     }
 
 
@@ -117,10 +263,10 @@ public class OrderController {
 
         Order order = orderOpt.get();
 
-        User currentUser = getCurrentUser(principal);
+        AuthenticatedUser currentUser = getCurrentUser(principal);
 
-        boolean isAdminOrModerator = currentUser.getRole() == Role.ADMIN || currentUser.getRole() == Role.MODERATOR;
-        boolean isOwner = order.getUser().getId().equals(currentUser.getId());
+        boolean isAdminOrModerator = currentUser.isAdminOrModerator();
+        boolean isOwner = order.getUser().getId().equals(currentUser.id());
 
         if (!isAdminOrModerator && !isOwner) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -133,11 +279,13 @@ public class OrderController {
 
     @Operation(
             summary = "Найти заказы текущего пользователя",
+            description = "Те же фильтры (кроме userId), тот же контракт курсора и параметр shape, " +
+                    "что и у списка всех заказов",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Заказы получены",
-                            content = @Content(schema = @Schema(implementation = OrderDTO.class))
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class))
                     ),
                     @ApiResponse(
                             responseCode = "401",
@@ -148,16 +296,19 @@ public class OrderController {
             }
     )
     @GetMapping("my/")
-    public ResponseEntity<?> getMyOrders(Principal principal) {
-        User currentUser = getCurrentUser(principal);
-
-        List<Order> userOrders = orderRepository.findByUserId(currentUser.getId());
-
-        List<OrderInfoDTO> orderDTOs = userOrders.stream()
-                .map(orderMapper::toInfoDto)
-                .toList();
-
-        return ResponseEntity.ok(orderDTOs);
+    public ResponseEntity<?> getMyOrders(@RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                                         @RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                                         @RequestParam(required = false) Double minTotal,
+                                         @RequestParam(required = false) Double maxTotal,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = SHAPE_FULL) String shape,
+                                         Principal principal) {
+        AuthenticatedUser currentUser = getCurrentUser(principal);
+
+        return listOrders(currentUser.id(), createdFrom, createdTo, minTotal, maxTotal, after, limit, shape);
     }
 
 
@@ -180,12 +331,58 @@ public class OrderController {
                             description = "Тело запроса отсутствует или некорректно",
                             content = @Content(schema = @Schema(
                                     example = "{\"error\": \"Тело запроса отсутствует или некорректно\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Асинхронный режим (orders.async.enabled): заказ принят в очередь, " +
+                                    "состояние — по адресу из заголовка Location",
+                            content = @Content(schema = @Schema(implementation = OrderTicketDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Асинхронный режим: очередь заказов переполнена",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Очередь заказов переполнена, повторите попытку позже\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Запрос с тем же Idempotency-Key ещё выполняется",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Запрос с этим ключом идемпотентности ещё выполняется\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "422",
+                            description = "Idempotency-Key уже использован с другим запросом",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Ключ идемпотентности уже использован для другого запроса\"}"))
                     )
             }
     )
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody @Valid OrderRequestDTO orderRequestDTO, Principal principal) {
-        User currentUser = getCurrentUser(principal);
+    public ResponseEntity<?> createOrder(@RequestBody @Valid OrderRequestDTO orderRequestDTO,
+                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                         Principal principal) {
+        AuthenticatedUser currentUser = getCurrentUser(principal);
+
+        return withIdempotencyKey(idempotencyKey, currentUser, "POST /api/orders/", orderRequestDTO,
+                () -> placeOrder(orderRequestDTO, currentUser));
+    }
+
+    private ResponseEntity<?> placeOrder(OrderRequestDTO orderRequestDTO, AuthenticatedUser currentUser) {
+        // Асинхронный режим: заказ ставится в очередь, клиент получает квитанцию и следит за ней
+        if (orderPlacementQueue.isEnabled()) {
+            try {
+                OrderTicketDTO ticket = orderPlacementQueue.submit(currentUser.id(), orderRequestDTO.getBookIds());
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/orders/tickets/" + ticket.getTicket() + "/"))
+                        .body(ticket);
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("error", "Очередь заказов переполнена, повторите попытку позже"));
+            }
+        }
+
         List<Book> books = bookRepository.findAllById(orderRequestDTO.getBookIds());
         if (books.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -197,8 +394,9 @@ public class OrderController {
                 .sum();
 
         Order order = new Order();
-        order.setUser(currentUser);
-        order.setBooks(books);
+        // Ссылка на пользователя без загрузки его из БД
+        order.setUser(userRepository.getReferenceById(currentUser.id()));
+        order.setBooks(new LinkedHashSet<>(books));
         order.setTotalPrice(totalPrice);
 
         orderRepository.save(order);
@@ -207,6 +405,33 @@ public class OrderController {
     }
 
 
+    @Operation(
+            summary = "Состояние заказа, принятого в асинхронном режиме",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "QUEUED — ждёт записи, PERSISTED — сохранён (orderId), FAILED — не сохранён (error)",
+                            content = @Content(schema = @Schema(implementation = OrderTicketDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Квитанция не найдена или устарела",
+                            content = @Content(schema = @Schema(example = "{\"error\": \"Квитанция не найдена\"}"))
+                    )
+            }
+    )
+    @GetMapping("tickets/{ticket}/")
+    public ResponseEntity<?> getOrderTicket(@PathVariable String ticket, Principal principal) {
+        AuthenticatedUser currentUser = getCurrentUser(principal);
+
+        // Чужие квитанции для обычного пользователя неотличимы от несуществующих
+        return orderPlacementQueue.status(ticket, currentUser.id(), currentUser.isAdminOrModerator())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Квитанция не найдена")));
+    }
+
+
     @Operation(
             summary = "Полностью изменить заказ",
             responses = {
@@ -230,20 +455,39 @@ public class OrderController {
                             description = "У пользователя нет доступа ко всем (кроме своих) заказам",
                             content = @Content(schema = @Schema(
                                     example = "{\"error\": \"У вас нет прав на выполнение этого действия\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Запрос с тем же Idempotency-Key ещё выполняется",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Запрос с этим ключом идемпотентности ещё выполняется\"}"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "422",
+                            description = "Idempotency-Key уже использован с другим запросом",
+                            content = @Content(schema = @Schema(
+                                    example = "{\"error\": \"Ключ идемпотентности уже использован для другого запроса\"}"))
                     )
             }
     )
     @PutMapping("{id}/")
-    public ResponseEntity<?> updateOrder(@PathVariable Long id, @Valid @RequestBody OrderRequestDTO orderRequestDTO, Principal principal) {
-        User currentUser = getCurrentUser(principal);
+    public ResponseEntity<?> updateOrder(@PathVariable Long id, @Valid @RequestBody OrderRequestDTO orderRequestDTO,
+                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                         Principal principal) {
+        AuthenticatedUser currentUser = getCurrentUser(principal);
+
+        return withIdempotencyKey(idempotencyKey, currentUser, "PUT /api/orders/" + id + "/", orderRequestDTO,
+                () -> applyUpdate(id, orderRequestDTO, currentUser));
+    }
 
+    private ResponseEntity<?> applyUpdate(Long id, OrderRequestDTO orderRequestDTO, AuthenticatedUser currentUser) {
         Optional<Order> orderOpt = orderRepository.findById(id);
         if (orderOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Заказ не найден"));
         }
-        boolean isAdminOrModerator = currentUser.getRole() == Role.ADMIN || currentUser.getRole() == Role.MODERATOR;
-        boolean isOwner = orderOpt.get().getUser().getId().equals(currentUser.getId());
+        boolean isAdminOrModerator = currentUser.isAdminOrModerator();
+        boolean isOwner = orderOpt.get().getUser().getId().equals(currentUser.id());
         if (!isAdminOrModerator && !isOwner) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Доступ запрещён: это не ваш заказ"));
@@ -263,7 +507,7 @@ public class OrderController {
 
         Order order = orderOpt.get();
         order.setUser(userOpt.get());
-        order.setBooks(books);
+        order.replaceBooks(books);
         order.setTotalPrice(books.stream()
                 .mapToDouble(Book::getPrice)
                 .sum());
@@ -300,12 +544,12 @@ public class OrderController {
                     .body(Collections.singletonMap("error", "Заказ не найден"));
         }
 
-        User currentUser = getCurrentUser(principal);
+        AuthenticatedUser currentUser = getCurrentUser(principal);
 
         Order order = optionalOrder.get();
 
-        boolean isAdminOrModerator = currentUser.getRole() == Role.ADMIN || currentUser.getRole() == Role.MODERATOR;
-        boolean isOwner = order.getUser().getId().equals(currentUser.getId());
+        boolean isAdminOrModerator = currentUser.isAdminOrModerator();
+        boolean isOwner = order.getUser().getId().equals(currentUser.id());
 
         if (!isAdminOrModerator && !isOwner) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -12,6 +12,8 @@ import ru.artemaweirro.rest_api.dto.UserInfoDTO;
 import ru.artemaweirro.rest_api.mappers.UserMapper;
 import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthenticatedUser;
+import ru.artemaweirro.rest_api.service.UserStateCache;
 
 import java.security.Principal;
 import java.util.List;
@@ -23,10 +25,12 @@ import java.util.Optional;
 public class UserController {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final UserStateCache userStateCache;
 
-    public UserController(UserRepository userRepository, UserMapper userMapper) {
+    public UserController(UserRepository userRepository, UserMapper userMapper, UserStateCache userStateCache) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.userStateCache = userStateCache;
     }
 
     @Operation(summary = "Получить список всех пользователей")
@@ -60,12 +64,13 @@ public class UserController {
                     .body(Map.of("error", "Пользователь не аутентифицирован"));
         }
 
-        String username = principal.getName();
-        Optional<User> userOpt = userRepository.findByUsername(username);
+        // Данные текущего пользователя уже есть в аутентификации запроса
+        Optional<AuthenticatedUser> userOpt = userStateCache.resolve(principal);
         if (userOpt.isEmpty())
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Пожалуйста, пройдите авторизацию заново"));
-        return ResponseEntity.ok(userMapper.toDto(userOpt.get()));
+        AuthenticatedUser user = userOpt.get();
+        return ResponseEntity.ok(new UserInfoDTO(user.id(), user.username(), user.role()));
     }
 
     @Operation(
@@ -112,8 +117,12 @@ public class UserController {
     public ResponseEntity<?> updateUser(@PathVariable Long id, @Valid @RequestBody UserInfoDTO updatedUser) {
         return userRepository.findById(id)
                 .<ResponseEntity<?>>map(user -> {
+                    String previousUsername = user.getUsername();
                     userMapper.updateEntityFromDTO(updatedUser, user);
                     userRepository.save(user); // сохраняем обновлённую книгу
+                    // Новая роль (или имя) должна действовать уже со следующего запроса
+                    userStateCache.invalidate(previousUsername);
+                    userStateCache.invalidate(user.getUsername());
                     return ResponseEntity.ok(userMapper.toDto(user)); // возвращаем DTO
                 })
             .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -142,6 +151,8 @@ public class UserController {
         }
 
         userRepository.delete(optionalUser.get());
+        // Токены удалённого пользователя перестают приниматься сразу
+        userStateCache.invalidate(optionalUser.get().getUsername());
         return ResponseEntity.noContent().build();
     }
 
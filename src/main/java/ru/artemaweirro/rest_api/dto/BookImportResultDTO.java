@@ -0,0 +1,16 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог массового импорта книг
+@Getter
+@Setter
+public class BookImportResultDTO {
+    private int imported;
+    private int rejected;
+    private List<ImportBatchDTO> batches = new ArrayList<>();
+}
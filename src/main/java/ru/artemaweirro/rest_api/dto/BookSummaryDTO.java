@@ -0,0 +1,18 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Краткое представление книги для списков каталога (без описания)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummaryDTO {
+    private Long id;
+    private String title;
+    private String author;
+    private Double price;
+}
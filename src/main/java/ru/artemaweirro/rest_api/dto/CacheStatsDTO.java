@@ -0,0 +1,15 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Счётчики кэша для подбора его размера
+@Getter
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+    private long size;
+}
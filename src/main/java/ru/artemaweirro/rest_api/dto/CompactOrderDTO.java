@@ -0,0 +1,28 @@
+package ru.artemaweirro.rest_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Заказ в компактном ответе: вместо книг — их id, сами книги лежат в общем словаре ответа
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactOrderDTO {
+    private Long id;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    private String user;
+
+    private List<Long> bookIds;
+
+    private Double totalPrice;
+}
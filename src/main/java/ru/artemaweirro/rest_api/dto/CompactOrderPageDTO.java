@@ -0,0 +1,21 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.artemaweirro.rest_api.models.Book;
+
+import java.util.List;
+import java.util.Map;
+
+// Список заказов в компактном виде (?shape=compact): каждая книга встречается в ответе один раз
+@Getter
+@AllArgsConstructor
+public class CompactOrderPageDTO {
+    private List<CompactOrderDTO> items;
+
+    // Книги всех заказов страницы по id
+    private Map<Long, Book> books;
+
+    // Курсор следующей страницы (null, если страница последняя или пагинация не запрошена)
+    private String next;
+}
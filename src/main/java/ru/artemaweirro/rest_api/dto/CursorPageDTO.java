@@ -0,0 +1,16 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Страница результатов keyset-пагинации
+@Getter
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> items;
+
+    // Курсор следующей страницы (null, если страница последняя)
+    private String next;
+}
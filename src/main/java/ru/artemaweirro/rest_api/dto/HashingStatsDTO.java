@@ -0,0 +1,18 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Состояние пула хеширования паролей: загрузка, очередь и время хеширования
+@Getter
+@AllArgsConstructor
+public class HashingStatsDTO {
+    private int threads;
+    private int active;
+    private int queued;
+    private int queueCapacity;
+    private long completed;
+    private long rejected;
+    private double averageMillis;
+    private double maxMillis;
+}
@@ -0,0 +1,27 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Результат одной порции массового импорта книг
+@Getter
+@Setter
+public class ImportBatchDTO {
+    private int batch;
+
+    // Диапазон строк входного файла, вошедших в порцию
+    private long firstLine;
+    private long lastLine;
+
+    private int inserted;
+    private int rejected;
+
+    // Ошибки отдельных строк: номер строки -> сообщение
+    private Map<Long, String> errors = new LinkedHashMap<>();
+
+    // Ошибка записи всей порции в БД (порция в этом случае не сохраняется)
+    private String error;
+}
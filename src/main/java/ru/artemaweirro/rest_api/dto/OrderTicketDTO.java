@@ -0,0 +1,22 @@
+package ru.artemaweirro.rest_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Квитанция заказа, принятого в асинхронном режиме, и его текущее состояние
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderTicketDTO {
+    public enum Status {
+        QUEUED,    // принят, ждёт записи
+        PERSISTED, // сохранён, orderId заполнен
+        FAILED     // не сохранён, причина в error
+    }
+
+    private String ticket;
+    private Status status;
+    private Long orderId;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package ru.artemaweirro.rest_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Сводка по одному виду SQL-запроса (текст с параметрами-заглушками) с момента запуска или сброса
+@Getter
+@AllArgsConstructor
+public class SqlStatementStatsDTO {
+    private String statement;
+    private long count;
+    private double totalMillis;
+    private double averageMillis;
+    private double maxMillis;
+}
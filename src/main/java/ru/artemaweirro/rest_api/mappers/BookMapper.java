@@ -2,6 +2,7 @@ package ru.artemaweirro.rest_api.mappers;
 
 import org.springframework.stereotype.Component;
 import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
 import ru.artemaweirro.rest_api.models.Book;
 
 @Component
@@ -17,6 +18,10 @@ public class BookMapper {
         return dto;
     }
 
+    public BookSummaryDTO toSummary(Book book) {
+        return new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getPrice());
+    }
+
     public Book toEntity(BookDTO dto) {
         Book book = new Book();
         book.setTitle(dto.getTitle());
@@ -0,0 +1,29 @@
+package ru.artemaweirro.rest_api.mappers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Кодирует позицию keyset-пагинации (ключ сортировки + id) в непрозрачную строку и обратно
+public final class CursorCodec {
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Object sortKey, Long id) {
+        String raw = sortKey + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Возвращает пару [ключ сортировки, id]; при некорректном курсоре — IllegalArgumentException
+    public static String[] decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = raw.lastIndexOf('\n');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+        String id = raw.substring(separator + 1);
+        Long.parseLong(id); // проверка формата
+        return new String[]{raw.substring(0, separator), id};
+    }
+}
@@ -1,11 +1,17 @@
 package ru.artemaweirro.rest_api.mappers;
 
 import org.springframework.stereotype.Component;
+import ru.artemaweirro.rest_api.dto.CompactOrderDTO;
+import ru.artemaweirro.rest_api.dto.CompactOrderPageDTO;
 import ru.artemaweirro.rest_api.dto.OrderDTO;
 import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
 import ru.artemaweirro.rest_api.models.Book;
 import ru.artemaweirro.rest_api.models.Order;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
@@ -29,8 +35,33 @@ public class OrderMapper {
         infoDTO.setId(order.getId());
         infoDTO.setCreatedAt(order.getCreatedAt());
         infoDTO.setUser(order.getUser().getUsername());
-        infoDTO.setBooks(order.getBooks());
+        infoDTO.setBooks(new ArrayList<>(order.getBooks()));
         infoDTO.setTotalPrice(order.getTotalPrice());
         return infoDTO;
     }
+
+    public CompactOrderDTO toCompactDto(Order order) {
+        CompactOrderDTO dto = new CompactOrderDTO();
+        dto.setId(order.getId());
+        dto.setCreatedAt(order.getCreatedAt());
+        dto.setUser(order.getUser().getUsername());
+        dto.setBookIds(order.getBooks().stream()
+                .map(Book::getId)
+                .collect(Collectors.toList()));
+        dto.setTotalPrice(order.getTotalPrice());
+        return dto;
+    }
+
+    // Заказы с id книг и общий словарь книг без повторов
+    public CompactOrderPageDTO toCompactPage(List<Order> orders, String next) {
+        List<CompactOrderDTO> items = new ArrayList<>(orders.size());
+        Map<Long, Book> books = new LinkedHashMap<>();
+        for (Order order : orders) {
+            items.add(toCompactDto(order));
+            for (Book book : order.getBooks()) {
+                books.putIfAbsent(book.getId(), book);
+            }
+        }
+        return new CompactOrderPageDTO(items, books, next);
+    }
 }
@@ -2,16 +2,26 @@ package ru.artemaweirro.rest_api.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity // говорит о том, что это сущность в БД
-@Table(name = "books") // имя таблицы в БД
+@Table(name = "books", indexes = { // имя таблицы в БД
+        // Индексы под keyset-пагинацию каталога
+        @Index(name = "idx_books_title_id", columnList = "title, id"),
+        @Index(name = "idx_books_price_id", columnList = "price, id")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books") // кэш второго уровня, см. application.conf
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // id выдаются из последовательности блоками по 50 (см. V3__pooled_sequences.sql): вставки не требуют
+    // немедленного обращения к БД и уходят пакетами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     private String title; // Название книги
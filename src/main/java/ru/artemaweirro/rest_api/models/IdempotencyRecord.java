@@ -0,0 +1,46 @@
+package ru.artemaweirro.rest_api.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Ответ, сохранённый для повторов запроса с тем же Idempotency-Key
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        // Один ключ на пользователя; повтор вставки — признак одновременного дубля
+        @UniqueConstraint(name = "uk_idempotency_keys_user_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    // SHA-256 запроса: тот же ключ с другим запросом не воспроизводится
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private int status; // HTTP-статус ответа; 0 — ключ занят, запрос ещё выполняется
+
+    private String location; // заголовок Location ответа (квитанция асинхронного заказа)
+
+    @Column(columnDefinition = "text")
+    private String body; // тело ответа в JSON
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
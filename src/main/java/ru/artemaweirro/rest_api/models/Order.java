@@ -2,32 +2,50 @@ package ru.artemaweirro.rest_api.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders") // имя таблицы в БД
+@Table(name = "orders", indexes = { // имя таблицы в БД
+        // Индексы под keyset-пагинацию заказов (created_at desc, id desc) с фильтром по пользователю и без
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_orders_created_id", columnList = "created_at, id")
+})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // id из последовательности блоками по 50: заказ и его строки order_books вставляются пакетами при flush
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Множество, а не список: при изменении состава Hibernate удаляет и вставляет только изменившиеся строки
+    // order_books, а не пересоздаёт их все. Книга входит в заказ не более одного раза (как и раньше:
+    // книги заказа собираются через findAllById)
     @ManyToMany
+    @BatchSize(size = 100) // книги для списка заказов подгружаются одним запросом на 100 заказов
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "order-books") // id книг заказа; сами книги — в кэше books
     @JoinTable(
             name = "order_books",
             joinColumns = @JoinColumn(name = "order_id"),
             inverseJoinColumns = @JoinColumn(name = "book_id")
     )
-    private List<Book> books;
+    @OrderBy("id")
+    private Set<Book> books = new LinkedHashSet<>();
 
     private double totalPrice;
 
@@ -38,6 +56,26 @@ public class Order {
         this.createdAt = LocalDateTime.now();
     }
 
+    // Привести состав заказа к newBooks, меняя текущее множество на месте: остаются книги с теми же id,
+    // удаляются отсутствующие в newBooks и добавляются новые. Число запросов к order_books — по числу изменений.
+    public void replaceBooks(Collection<Book> newBooks) {
+        Set<Long> newIds = new HashSet<>();
+        for (Book book : newBooks) {
+            newIds.add(book.getId());
+        }
+        books.removeIf(book -> !newIds.contains(book.getId()));
+
+        Set<Long> currentIds = new HashSet<>();
+        for (Book book : books) {
+            currentIds.add(book.getId());
+        }
+        for (Book book : newBooks) {
+            if (currentIds.add(book.getId())) {
+                books.add(book);
+            }
+        }
+    }
+
 //    public User getUser() {
 //        return user;
 //    }
@@ -2,6 +2,8 @@ package ru.artemaweirro.rest_api.models;
 
 import jakarta.persistence.*;
 import lombok.*; // позволяет упростить код (автоматические get, set и др)
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,9 +17,11 @@ import java.util.List;
 @AllArgsConstructor // автоматически создает конструктор со всеми полями
 @Entity // говорит о том, что это сущность в БД
 @Table(name = "users") // имя таблицы в БД
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users") // кэш второго уровня, см. application.conf
 public class User implements UserDetails {
     @Id // первичный ключ
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // автоинкремент
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq") // id из последовательности блоками по 50
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false) // поле username
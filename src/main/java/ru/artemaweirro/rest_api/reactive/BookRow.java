@@ -0,0 +1,10 @@
+package ru.artemaweirro.rest_api.reactive;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+// Строка таблицы books для реактивного чтения через R2DBC.
+// Поля и их JSON-представление совпадают с сущностью Book, которой пользуется JPA.
+@Table("books")
+public record BookRow(@Id Long id, String title, String author, double price, String description) {
+}
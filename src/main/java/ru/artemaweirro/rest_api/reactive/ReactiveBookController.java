@@ -0,0 +1,109 @@
+package ru.artemaweirro.rest_api.reactive;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+// Реактивный путь чтения каталога через R2DBC, параллельный JPA-эндпоинтам /api/books/.
+// Списки в формате application/x-ndjson отдаются потоком: следующая строка запрашивается из БД
+// по мере записи предыдущей в ответ (обратное давление). При Accept: application/json список
+// собирается целиком, как в обычном API.
+@RestController
+@RequestMapping("/api/reactive/books/")
+public class ReactiveBookController {
+    // Максимальное число книг в одном ответе
+    public static final int MAX_LIMIT = 1000;
+    public static final int DEFAULT_LIMIT = 100;
+
+    private final ReactiveBookRepository reactiveBookRepository;
+
+    public ReactiveBookController(ReactiveBookRepository reactiveBookRepository) {
+        this.reactiveBookRepository = reactiveBookRepository;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+
+    @Operation(
+            summary = "Получить книги (реактивно)",
+            description = "Книги с id больше after по возрастанию id, не более limit. " +
+                    "При Accept: application/x-ndjson книги передаются потоком по одной на строку",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Книги получены",
+                            content = @Content(schema = @Schema(implementation = BookRow.class))
+                    )
+            }
+    )
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<BookRow> getBooks(@RequestParam(defaultValue = "0") long after,
+                                  @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        checkLimit(limit);
+        return reactiveBookRepository.findPageAfterId(after, limit);
+    }
+
+    @Operation(
+            summary = "Получить книгу по id (реактивно)",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Книга найдена",
+                            content = @Content(schema = @Schema(implementation = BookRow.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Книга не найдена",
+                            content = @Content(schema = @Schema(example = "{\"error\": \"Книга не найдена\"}"))
+                    )
+            }
+    )
+    @GetMapping("{id}/")
+    public Mono<ResponseEntity<Object>> getBookById(@PathVariable Long id) {
+        return reactiveBookRepository.findById(id)
+                .map(book -> ResponseEntity.ok().<Object>body(book))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Книга не найдена")));
+    }
+
+    @Operation(
+            summary = "Найти книги по названию (реактивно)",
+            description = "Поиск по подстроке в названии без учёта регистра, по возрастанию id",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Книги найдены (пустой список, если совпадений нет)",
+                            content = @Content(schema = @Schema(implementation = BookRow.class))
+                    )
+            }
+    )
+    @GetMapping(value = "by-title/", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<BookRow> getBooksByTitle(@RequestParam String title,
+                                         @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        checkLimit(limit);
+        return reactiveBookRepository.findByTitleLike(containsPattern(title), limit);
+    }
+
+    // Шаблон ILIKE для поиска подстроки: спецсимволы запроса экранируются
+    static String containsPattern(String query) {
+        String escaped = query
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,17 @@
+package ru.artemaweirro.rest_api.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+// Реактивные запросы к таблице books (только чтение; запись идёт через JPA)
+public interface ReactiveBookRepository extends ReactiveCrudRepository<BookRow, Long> {
+
+    @Query("select * from books where id > :afterId order by id limit :limit")
+    Flux<BookRow> findPageAfterId(long afterId, int limit);
+
+    // pattern уже содержит экранированную подстроку в обрамлении '%'.
+    // Условие записано так же, как у JPA-поиска по названию, чтобы использовать индекс idx_books_title_trgm
+    @Query("select * from books where upper(title) like upper(:pattern) escape '\\' order by id limit :limit")
+    Flux<BookRow> findByTitleLike(String pattern, int limit);
+}
@@ -1,11 +1,74 @@
 package ru.artemaweirro.rest_api.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
 import ru.artemaweirro.rest_api.models.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
+    // Регион кэша запросов для поиска по названию
+    String TITLE_SEARCH_CACHE_REGION = "books-by-title";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = TITLE_SEARCH_CACHE_REGION)
+    })
     List<Book> findByTitleContainingIgnoreCase(String title);
 
-}
\ No newline at end of file
+    // Keyset-пагинация: сортировка по id
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Keyset-пагинация: сортировка по названию (id — стабильный разделитель одинаковых названий)
+    List<Book> findAllByOrderByTitleAscIdAsc(Limit limit);
+
+    @Query("select b from Book b where b.title > :title or (b.title = :title and b.id > :id) " +
+            "order by b.title asc, b.id asc")
+    List<Book> findPageByTitleAfter(@Param("title") String title, @Param("id") Long id, Limit limit);
+
+    // Keyset-пагинация: сортировка по цене
+    List<Book> findAllByOrderByPriceAscIdAsc(Limit limit);
+
+    @Query("select b from Book b where b.price > :price or (b.price = :price and b.id > :id) " +
+            "order by b.price asc, b.id asc")
+    List<Book> findPageByPriceAfter(@Param("price") double price, @Param("id") Long id, Limit limit);
+
+    // Краткие представления книг (id, название, автор, цена): те же keyset-страницы без чтения описания
+    String SUMMARY = "select new ru.artemaweirro.rest_api.dto.BookSummaryDTO(b.id, b.title, b.author, b.price) ";
+
+    @Query(SUMMARY + "from Book b where b.id > :id order by b.id asc")
+    List<BookSummaryDTO> findSummaryPageByIdAfter(@Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY + "from Book b order by b.title asc, b.id asc")
+    List<BookSummaryDTO> findSummaryPageOrderByTitle(Limit limit);
+
+    @Query(SUMMARY + "from Book b where b.title > :title or (b.title = :title and b.id > :id) " +
+            "order by b.title asc, b.id asc")
+    List<BookSummaryDTO> findSummaryPageByTitleAfter(@Param("title") String title, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY + "from Book b order by b.price asc, b.id asc")
+    List<BookSummaryDTO> findSummaryPageOrderByPrice(Limit limit);
+
+    @Query(SUMMARY + "from Book b where b.price > :price or (b.price = :price and b.id > :id) " +
+            "order by b.price asc, b.id asc")
+    List<BookSummaryDTO> findSummaryPageByPriceAfter(@Param("price") double price, @Param("id") Long id, Limit limit);
+
+    // Потоковое чтение всего каталога порциями по 500 строк (вызывать внутри read-only транзакции)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAll();
+
+    @Query("select coalesce(max(b.id), 0) from Book b")
+    long findMaxId();
+}
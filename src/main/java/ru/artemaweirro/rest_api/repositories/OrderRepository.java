@@ -1,10 +1,33 @@
 package ru.artemaweirro.rest_api.repositories;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import ru.artemaweirro.rest_api.models.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+// Списки заказов загружают пользователя тем же запросом (entity graph),
+// а книги заказов — пакетно, одним запросом на порцию заказов (@BatchSize в Order)
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+    // Порядок keyset-пагинации; опирается на индексы idx_orders_created_id и idx_orders_user_created_id
+    Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = "user")
     List<Order> findByUserId(Long userId);
+
+    // Не более limit заказов, подходящих под условие, от новых к старым
+    default List<Order> findPage(Specification<Order> filter, int limit) {
+        return findBy(filter, query -> query
+                .sortBy(NEWEST_FIRST)
+                .project("user")
+                .limit(limit)
+                .all());
+    }
 }
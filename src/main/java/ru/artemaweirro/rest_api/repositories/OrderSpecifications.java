@@ -0,0 +1,51 @@
+package ru.artemaweirro.rest_api.repositories;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.artemaweirro.rest_api.models.Order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Условия выборки заказов для поиска с keyset-пагинацией (порядок — от новых к старым)
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    // Фильтр по пользователю, диапазону даты создания и диапазону суммы; null — без ограничения
+    public static Specification<Order> filter(Long userId,
+                                              LocalDateTime createdFrom,
+                                              LocalDateTime createdTo,
+                                              Double minTotal,
+                                              Double maxTotal) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (userId != null) {
+                // Сравнение по внешнему ключу, без соединения с таблицей users
+                predicates.add(cb.equal(root.get("user").get("id"), userId));
+            }
+            if (createdFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), createdFrom));
+            }
+            if (createdTo != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), createdTo));
+            }
+            if (minTotal != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("totalPrice"), minTotal));
+            }
+            if (maxTotal != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("totalPrice"), maxTotal));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Заказы, идущие после позиции курсора при сортировке (createdAt desc, id desc)
+    public static Specification<Order> before(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.artemaweirro.rest_api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничение частоты входа и регистрации: отдельные «вёдра токенов» на IP клиента и на имя пользователя.
+// Ведро — один AtomicLong, обновляемый через CAS (алгоритм GCRA), поэтому проверка не берёт блокировок.
+// Вёдра хранятся в Caffeine: число ключей ограничено, простаивающие ключи вытесняются.
+@Component
+public class AuthRateLimiter {
+
+    private final Limit ipLimit;
+    private final Limit usernameLimit;
+    private final Cache<String, Bucket> ipBuckets;
+    private final Cache<String, Bucket> usernameBuckets;
+
+    // capacity запросов за period; столько же можно сделать подряд после простоя
+    record Limit(long capacity, Duration period) {
+        long intervalNanos() {
+            return Math.max(1, period.toNanos() / capacity);
+        }
+
+        long burstNanos() {
+            return intervalNanos() * capacity;
+        }
+    }
+
+    public AuthRateLimiter(@Value("${auth.rate-limit.ip.capacity:30}") long ipCapacity,
+                           @Value("${auth.rate-limit.ip.period:1m}") Duration ipPeriod,
+                           @Value("${auth.rate-limit.username.capacity:10}") long usernameCapacity,
+                           @Value("${auth.rate-limit.username.period:1m}") Duration usernamePeriod,
+                           @Value("${auth.rate-limit.max-keys:100000}") long maxKeys) {
+        this.ipLimit = new Limit(ipCapacity, ipPeriod);
+        this.usernameLimit = new Limit(usernameCapacity, usernamePeriod);
+        this.ipBuckets = buckets(maxKeys, ipPeriod);
+        this.usernameBuckets = buckets(maxKeys, usernamePeriod);
+    }
+
+    // Ведро, не использовавшееся дольше периода, уже полностью восстановилось — его можно выбросить
+    private static Cache<String, Bucket> buckets(long maxKeys, Duration idle) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idle)
+                .build();
+    }
+
+    // 0 — запрос разрешён, иначе через сколько наносекунд можно повторить
+    public long acquireForIp(String ip) {
+        return acquireForIp(ip, System.nanoTime());
+    }
+
+    public long acquireForUsername(String username) {
+        return acquireForUsername(username, System.nanoTime());
+    }
+
+    long acquireForIp(String ip, long now) {
+        return ipBuckets.get(ip, key -> new Bucket(now)).tryAcquire(ipLimit, now);
+    }
+
+    long acquireForUsername(String username, long now) {
+        String key = username.trim().toLowerCase(Locale.ROOT);
+        return usernameBuckets.get(key, k -> new Bucket(now)).tryAcquire(usernameLimit, now);
+    }
+
+    // Хранит теоретическое время прихода следующего запроса (TAT). Запрос разрешён, если после него
+    // TAT уйдёт вперёд не дальше, чем на capacity интервалов от текущего момента.
+    static final class Bucket {
+        private final AtomicLong tat;
+
+        Bucket(long now) {
+            this.tat = new AtomicLong(now);
+        }
+
+        long tryAcquire(Limit limit, long now) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + limit.intervalNanos();
+                long overflow = next - now - limit.burstNanos();
+                if (overflow > 0) {
+                    return overflow;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
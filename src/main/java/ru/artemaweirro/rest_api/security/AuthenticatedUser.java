@@ -0,0 +1,31 @@
+package ru.artemaweirro.rest_api.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
+
+import java.security.Principal;
+import java.util.List;
+
+// Облегчённый principal аутентифицированного запроса: только то, что нужно для проверки прав.
+// В отличие от сущности User не тянет за собой пароль и связанные заказы.
+public record AuthenticatedUser(Long id, String username, Role role) implements Principal {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    public boolean isAdminOrModerator() {
+        return role == Role.ADMIN || role == Role.MODERATOR;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.artemaweirro.rest_api.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,20 +9,21 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
-import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.service.UserStateCache;
 
 import java.io.IOException;
+import java.util.Optional;
 
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserRepository userRepository; // добавили
+    private final UserStateCache userStateCache;
 
     public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider,
-                                   UserRepository userRepository) {
+                                   UserStateCache userStateCache) {
         this.jwtTokenProvider = jwtTokenProvider;
-        this.userRepository = userRepository;
+        this.userStateCache = userStateCache;
     }
 
     @Override
@@ -37,24 +39,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
 
-            if (jwtTokenProvider.validateToken(token)) {
-                String username = jwtTokenProvider.getUsername(token);
-
-                // 🔐 Проверка, существует ли пользователь в БД
-                if (username == null || userRepository.findByUsername(username).isEmpty()) {
+            // Токен проверяется один раз за запрос; дальше используются готовые claims
+            Claims claims = jwtTokenProvider.verify(token);
+            if (claims != null) {
+                // 🔐 Проверка, существует ли пользователь (через кэш, без запроса к БД при попадании)
+                Optional<AuthenticatedUser> user = claims.getSubject() == null
+                        ? Optional.empty()
+                        : userStateCache.get(claims.getSubject());
+                if (user.isEmpty()) {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.setContentType("application/json;charset=UTF-8");
                     response.getWriter().write("{\"error\": \"Пользователь не найден. Повторите авторизацию.\"}");
                     return;
                 }
 
-                var authentication = jwtTokenProvider.getAuthentication(token);
-
+                // Роль берётся из актуального состояния пользователя, а не из токена
                 var updatedAuthentication = new UsernamePasswordAuthenticationToken(
-                        authentication.getPrincipal(),
-                        authentication.getCredentials(),
-                        authentication.getAuthorities()
-                );
+                        user.get(), null, user.get().authorities());
 
                 // Устанавливаем дополнительные детали (информацию о запросе)
                 updatedAuthentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -1,38 +1,65 @@
 package ru.artemaweirro.rest_api.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${jwt.secret}")  // параметр jwt.secret записан в application.properties
-    private String secretKey;
+    private final long validityInMilliseconds;
+    private final SecretKey signingKey;
+    // Парсер потокобезопасен, поэтому создаётся один раз
+    private final JwtParser parser;
+    // Проверенные claims по SHA-256 токена; запись живёт до истечения срока действия токена
+    private final Cache<String, Claims> verifiedClaims;
 
-    @Value("${jwt.expiration}")  // параметр jwt.expiration записан в application.properties
-    private long validityInMilliseconds;
+    public JwtTokenProvider(@Value("${jwt.secret}") String secret, // параметры записаны в application.properties
+                            @Value("${jwt.expiration}") long validityInMilliseconds,
+                            @Value("${jwt.claims-cache.max-size:10000}") long claimsCacheSize) {
+        this.validityInMilliseconds = validityInMilliseconds;
+        // Те же байты ключа, что и при подписи строкой в Base64, — ранее выданные токены остаются валидными
+        this.signingKey = new SecretKeySpec(
+                secret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()));
+                    }
 
-    private final UserDetailsService userDetailsService;
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
 
-    public JwtTokenProvider(UserDetailsService userDetailsService) {
-        this.userDetailsService = userDetailsService;
-    }
-
-    @PostConstruct
-    protected void init() {
-        secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String createToken(String username, String role) {
@@ -46,30 +73,43 @@ public class JwtTokenProvider {
                 .setClaims(claims)
                 .setIssuedAt(now)
                 .setExpiration(validity)
-                .signWith(SignatureAlgorithm.HS256, secretKey)  // Использование секрета для подписи
+                .signWith(signingKey, SignatureAlgorithm.HS256)  // Использование секрета для подписи
                 .compact();
     }
 
-    public String getUsername(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey)  // Использования секрета для проверки
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
+    // Проверка подписи и срока действия; null — токен недействителен.
+    // Повторные запросы с тем же токеном обслуживаются из кэша без разбора и HMAC.
+    public Claims verify(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
 
-    public boolean validateToken(String token) {
+        String digest = digest(token);
+        Claims cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null) {
+            return cached.getExpiration().after(new Date()) ? cached : null;
+        }
+
+        Claims claims;
         try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return true;
+            claims = parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
+        }
+        // Токены без срока действия не кэшируются
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(digest, claims);
         }
+        return claims;
     }
 
-    public Authentication getAuthentication(String token) {
-        String username = getUsername(token);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязан поддерживаться любой реализацией Java
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package ru.artemaweirro.rest_api.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Ограничение частоты запросов входа и регистрации (см. AuthRateLimiter).
+// Стоит перед JwtAuthenticationFilter: отклонённые запросы не доходят ни до БД, ни до BCrypt.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/api/auth/login/", "/api/auth/register/");
+    // Тело запроса входа небольшое; из более крупных тел имя пользователя не извлекается,
+    // но лимит по IP к ним всё равно применяется
+    private static final int MAX_BODY_BYTES = 8 * 1024;
+
+    private final AuthRateLimiter authRateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(AuthRateLimiter authRateLimiter, ObjectMapper objectMapper) {
+        this.authRateLimiter = authRateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !LIMITED_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        long waitNanos = authRateLimiter.acquireForIp(request.getRemoteAddr());
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+
+        // Начало тела читается заранее, чтобы узнать имя пользователя, и затем отдаётся контроллеру повторно
+        PrereadBodyRequest prereadRequest = new PrereadBodyRequest(request);
+        String username = prereadRequest.complete ? username(prereadRequest.prefix) : null;
+        if (username != null) {
+            waitNanos = authRateLimiter.acquireForUsername(username);
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+        }
+
+        filterChain.doFilter(prereadRequest, response);
+    }
+
+    private String username(byte[] body) {
+        try {
+            JsonNode username = objectMapper.readTree(body).get("username");
+            return username != null && username.isTextual() && !username.asText().isBlank()
+                    ? username.asText()
+                    : null;
+        } catch (IOException e) {
+            // Некорректный JSON отклонит сам контроллер
+            return null;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"error\": \"Слишком много попыток, повторите позже\"}");
+    }
+
+    // Запрос, начало тела которого (до MAX_BODY_BYTES) уже прочитано в память: при повторном чтении
+    // сначала отдаётся прочитанная часть, затем остаток исходного потока
+    private static final class PrereadBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] prefix;
+        // Тело прочитано целиком
+        private final boolean complete;
+        private ServletInputStream stream;
+
+        private PrereadBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.prefix = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            this.complete = prefix.length <= MAX_BODY_BYTES;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new PrereadInputStream(prefix, super.getInputStream());
+            }
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+
+    // Поток тела: прочитанная заранее часть, затем исходный поток. Пока прочитанная часть не отдана,
+    // поток готов к чтению и не завершён; после неё состояние и неблокирующее чтение — как у исходного потока
+    static final class PrereadInputStream extends ServletInputStream {
+        private final byte[] prefix;
+        private final ServletInputStream delegate;
+        // Сколько байт прочитанной части уже отдано
+        private int position;
+
+        PrereadInputStream(byte[] prefix, ServletInputStream delegate) {
+            this.prefix = prefix;
+            this.delegate = delegate;
+        }
+
+        private boolean prefixConsumed() {
+            return position >= prefix.length;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return prefixConsumed() && delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return !prefixConsumed() || delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    listener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    // Исходный поток мог быть прочитан до конца заранее: прочитанная часть ещё не отдана
+                    if (!prefixConsumed()) {
+                        listener.onDataAvailable();
+                    }
+                    listener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    listener.onError(t);
+                }
+            });
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!prefixConsumed()) {
+                return prefix[position++] & 0xff;
+            }
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!prefixConsumed()) {
+                // Только из прочитанной части: обращение к исходному потоку могло бы заблокировать чтение
+                int count = Math.min(len, prefix.length - position);
+                System.arraycopy(prefix, position, b, off, count);
+                position += count;
+                return count;
+            }
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return prefixConsumed() ? delegate.available() : prefix.length - position;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.CacheStatsDTO;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Кэш книг по id перед BookRepository.findById: ограничен по размеру и времени жизни записи.
+// Записи сбрасываются контроллером при каждом изменении или удалении книги.
+@Service
+public class BookCache {
+
+    private final Cache<Long, BookDTO> cache;
+    // Счётчик сбросов кэша
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookCache(@Value("${books.cache.max-size:10000}") long maxSize,
+                     @Value("${books.cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Книга из кэша; при промахе загружается через loader (отсутствующие книги не кэшируются).
+    // Загрузка идёт вне cache.get(key, loader): иначе запрос к БД выполнялся бы под блокировкой
+    // ConcurrentHashMap и закреплял бы виртуальный поток за несущим. Если за время загрузки кэш
+    // сбрасывался, результат удаляется из кэша, чтобы не вернуть в него устаревшую книгу.
+    public Optional<BookDTO> get(Long id, Function<Long, Optional<BookDTO>> loader) {
+        BookDTO cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generationBefore = generation.get();
+        Optional<BookDTO> loaded = loader.apply(id);
+        if (loaded.isPresent()) {
+            cache.put(id, loaded.get());
+            // Проверка после записи: сброс мог пройти между загрузкой и put
+            if (generation.get() != generationBefore) {
+                cache.invalidate(id);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(Long id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStatsDTO stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate(),
+                cache.estimatedSize()
+        );
+    }
+}
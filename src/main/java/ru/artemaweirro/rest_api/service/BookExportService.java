@@ -0,0 +1,69 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Потоковая выгрузка каталога: книги читаются курсором и сразу пишутся в ответ,
+// поэтому потребление памяти не зависит от размера таблицы.
+@Service
+public class BookExportService {
+
+    // Как часто сбрасывать буфер в сеть (в книгах)
+    private static final int FLUSH_EVERY = 500;
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public BookExportService(BookRepository bookRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // ndjson = true — по одной книге в строке (NDJSON), иначе один JSON-массив
+    @Transactional(readOnly = true)
+    public void export(OutputStream out, boolean ndjson) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // Поток ответа закрывает сервер, а разделители строк пишем сами
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        if (!ndjson) {
+            generator.writeStartArray();
+        }
+
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            Iterator<Book> iterator = books.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                generator.writeObject(book);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+                // Отсоединяем книгу, чтобы контекст персистентности не рос вместе с выгрузкой
+                entityManager.detach(book);
+
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.flush();
+    }
+}
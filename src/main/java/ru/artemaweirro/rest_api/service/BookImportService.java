@@ -0,0 +1,263 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.BookImportResultDTO;
+import ru.artemaweirro.rest_api.dto.ImportBatchDTO;
+import ru.artemaweirro.rest_api.mappers.BookMapper;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Массовый импорт книг из CSV или NDJSON. Вход читается построчно, строки проверяются
+// теми же правилами, что и BookDTO, и сохраняются порциями. id берутся из последовательности блоками,
+// поэтому Hibernate отправляет вставки пакетами JDBC (hibernate.jdbc.batch_size).
+@Service
+public class BookImportService {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 5000;
+    // Сколько ошибок строк попадает в отчёт (счётчики отклонённых строк ведутся всегда)
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final List<String> CSV_COLUMNS = List.of("title", "author", "price", "description");
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogVersion catalogVersion;
+    private final EntityManagerFactory entityManagerFactory;
+    private final BookMapper bookMapper;
+
+    public BookImportService(TransactionTemplate transactionTemplate,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             BookRepository bookRepository,
+                             BookSearchIndex bookSearchIndex,
+                             CatalogVersion catalogVersion,
+                             EntityManagerFactory entityManagerFactory,
+                             BookMapper bookMapper) {
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.catalogVersion = catalogVersion;
+        this.entityManagerFactory = entityManagerFactory;
+        this.bookMapper = bookMapper;
+    }
+
+    // Некорректный заголовок CSV приводит к IllegalArgumentException; ошибки строк попадают в отчёт
+    public BookImportResultDTO importBooks(InputStream in, Format format, int batchSize) throws IOException {
+        long lastIdBefore = bookRepository.findMaxId();
+
+        BookImportResultDTO result = new BookImportResultDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> csvColumns = null;
+        List<BookDTO> pending = new ArrayList<>(batchSize);
+        ImportBatchDTO batch = null;
+        long lineNumber = 0;
+        int reportedErrors = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            if (format == Format.CSV && csvColumns == null) {
+                csvColumns = parseCsvHeader(line);
+                continue;
+            }
+
+            if (batch == null) {
+                batch = new ImportBatchDTO();
+                batch.setBatch(result.getBatches().size() + 1);
+                batch.setFirstLine(lineNumber);
+            }
+            batch.setLastLine(lineNumber);
+
+            String error;
+            BookDTO dto = null;
+            try {
+                dto = format == Format.CSV ? parseCsvRow(line, csvColumns) : objectMapper.readValue(line, BookDTO.class);
+                error = validate(dto);
+            } catch (JsonProcessingException e) {
+                error = "Некорректный JSON: " + e.getOriginalMessage();
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+
+            if (error == null) {
+                pending.add(dto);
+            } else {
+                batch.setRejected(batch.getRejected() + 1);
+                if (reportedErrors++ < MAX_REPORTED_ERRORS) {
+                    batch.getErrors().put(lineNumber, error);
+                }
+            }
+
+            if (pending.size() == batchSize) {
+                result.getBatches().add(flush(batch, pending));
+                batch = null;
+                pending.clear();
+            }
+        }
+        if (batch != null) {
+            result.getBatches().add(flush(batch, pending));
+        }
+
+        for (ImportBatchDTO done : result.getBatches()) {
+            result.setImported(result.getImported() + done.getInserted());
+            result.setRejected(result.getRejected() + done.getRejected());
+        }
+
+        if (result.getImported() > 0) {
+            catalogVersion.bump();
+            bookSearchIndex.indexNewerThan(lastIdBefore);
+        }
+        return result;
+    }
+
+    // Вставка порции одной транзакцией; при ошибке БД порция откатывается целиком
+    private ImportBatchDTO flush(ImportBatchDTO batch, List<BookDTO> books) {
+        if (books.isEmpty()) {
+            return batch;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+                Session session = entityManager.unwrap(Session.class);
+                // Импортированные книги не вытесняют из кэша второго уровня часто читаемые;
+                // результаты поиска в кэше запросов Hibernate всё равно сбрасывает при вставке
+                CacheMode cacheMode = session.getCacheMode();
+                session.setCacheMode(CacheMode.IGNORE);
+                try {
+                    for (BookDTO dto : books) {
+                        entityManager.persist(bookMapper.toEntity(dto));
+                    }
+                    entityManager.flush();
+                    // Порция больше не нужна в памяти
+                    entityManager.clear();
+                } finally {
+                    session.setCacheMode(cacheMode);
+                }
+            });
+            batch.setInserted(books.size());
+        } catch (DataAccessException | PersistenceException e) {
+            batch.setRejected(batch.getRejected() + books.size());
+            batch.setError("Порция не сохранена: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+        return batch;
+    }
+
+    // Проверка строки теми же ограничениями, что и у BookDTO; null — ошибок нет
+    private String validate(BookDTO dto) {
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // Заголовок CSV: имена колонок title, author, price, description в любом порядке
+    private static Map<String, Integer> parseCsvHeader(String line) {
+        List<String> names = parseCsvLine(line.replace("\uFEFF", ""));
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+            throw new IllegalArgumentException(
+                    "Заголовок CSV должен содержать колонки: " + String.join(", ", CSV_COLUMNS));
+        }
+        return columns;
+    }
+
+    private static BookDTO parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = parseCsvLine(line);
+        BookDTO dto = new BookDTO();
+        dto.setTitle(field(fields, columns, "title"));
+        dto.setAuthor(field(fields, columns, "author"));
+        dto.setDescription(field(fields, columns, "description"));
+
+        String price = field(fields, columns, "price");
+        if (price != null && !price.isBlank()) {
+            try {
+                dto.setPrice(Double.valueOf(price.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректная цена: " + price);
+            }
+        }
+        return dto;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    // Разбор строки CSV (RFC 4180 без переносов строк внутри полей)
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытые кавычки в строке CSV");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,236 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Инвертированный индекс по триграммам названий и авторов книг для поиска по подстроке в памяти.
+// Строится при старте приложения и обновляется контроллером при каждом изменении книги.
+// Вместе с индексом хранятся краткие представления книг, поэтому результаты поиска
+// в кратком виде отдаются без обращения к БД.
+@Service
+public class BookSearchIndex implements CommandLineRunner {
+
+    private static final int GRAM_SIZE = 3;
+    // Размер порции при первоначальной загрузке книг из БД
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Порядок выдачи: оценка, затем более короткое название, затем id
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingInt(Match::score)
+            .thenComparingInt(match -> match.entry().title().length())
+            .thenComparing(match -> match.entry().summary().getId());
+
+    private final BookRepository bookRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> titleGrams = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> authorGrams = new ConcurrentHashMap<>();
+
+    // Пока индекс не построен, поиск должен идти через БД
+    private volatile boolean ready;
+
+    // Краткое представление книги и её нормализованные (в нижнем регистре) название и автор
+    private record Entry(BookSummaryDTO summary, String title, String author) {
+    }
+
+    // Совпадение с оценкой для ранжирования: чем меньше score, тем выше в выдаче
+    private record Match(Entry entry, int score) {
+    }
+
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        rebuild();
+    }
+
+    // Полная перестройка индекса: книги читаются порциями по возрастанию id
+    public void rebuild() {
+        ready = false;
+        synchronized (this) {
+            entries.clear();
+            titleGrams.clear();
+            authorGrams.clear();
+        }
+
+        indexNewerThan(0L);
+        ready = true;
+    }
+
+    // Индексация всех книг с id больше заданного (например, после массового импорта).
+    // Читаются только краткие представления — описания книг в индекс не попадают.
+    public void indexNewerThan(long lastId) {
+        List<BookSummaryDTO> batch;
+        do {
+            batch = bookRepository.findSummaryPageByIdAfter(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            for (BookSummaryDTO summary : batch) {
+                index(summary);
+                lastId = summary.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Добавление или обновление книги в индексе
+    public void index(Book book) {
+        index(new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getPrice()));
+    }
+
+    public synchronized void index(BookSummaryDTO summary) {
+        Long id = summary.getId();
+        remove(id);
+
+        Entry entry = new Entry(summary, normalize(summary.getTitle()), normalize(summary.getAuthor()));
+        entries.put(id, entry);
+        addGrams(titleGrams, entry.title(), id);
+        addGrams(authorGrams, entry.author(), id);
+    }
+
+    public synchronized void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        removeGrams(titleGrams, entry.title(), id);
+        removeGrams(authorGrams, entry.author(), id);
+    }
+
+    // Поиск по подстроке в названии
+    public List<BookSummaryDTO> searchByTitle(String query, int limit) {
+        return search(query, limit, false);
+    }
+
+    // Поиск по подстроке в названии или авторе; совпадения в названии ранжируются выше
+    public List<BookSummaryDTO> searchByTitleOrAuthor(String query, int limit) {
+        return search(query, limit, true);
+    }
+
+    private List<BookSummaryDTO> search(String query, int limit, boolean includeAuthor) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        Collection<Entry> candidates;
+        if (q.length() < GRAM_SIZE) {
+            // Для коротких запросов триграмм нет — просматриваем все записи (они уже в памяти)
+            candidates = entries.values();
+        } else {
+            Set<Long> ids = new HashSet<>(intersect(titleGrams, q));
+            if (includeAuthor) {
+                ids.addAll(intersect(authorGrams, q));
+            }
+            candidates = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    candidates.add(entry);
+                }
+            }
+        }
+
+        // Наличие всех триграмм ещё не гарантирует вхождение подстроки — проверяем каждое совпадение
+        PriorityQueue<Match> top = new PriorityQueue<>(RANKING.reversed());
+        for (Entry entry : candidates) {
+            int score = score(entry, q, includeAuthor);
+            if (score < 0) {
+                continue;
+            }
+            top.add(new Match(entry, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Match> result = new ArrayList<>(top);
+        result.sort(RANKING);
+        return result.stream().map(match -> match.entry().summary()).toList();
+    }
+
+    // 0 — название начинается с запроса, 1 — название содержит запрос,
+    // 2 — запрос найден только у автора, -1 — совпадения нет
+    private static int score(Entry entry, String q, boolean includeAuthor) {
+        int position = entry.title().indexOf(q);
+        if (position == 0) {
+            return 0;
+        }
+        if (position > 0) {
+            return 1;
+        }
+        if (includeAuthor && entry.author().contains(q)) {
+            return 2;
+        }
+        return -1;
+    }
+
+    // Книги, содержащие все триграммы запроса (начинаем с самого короткого списка)
+    private static Set<Long> intersect(Map<String, Set<Long>> postings, String q) {
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(q)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null || ids.isEmpty()) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static void addGrams(Map<String, Set<Long>> postings, String text, Long id) {
+        for (String gram : grams(text)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static void removeGrams(Map<String, Set<Long>> postings, String text, Long id) {
+        for (String gram : grams(text)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_SIZE));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,63 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версия каталога книг: увеличивается при каждом изменении книг и служит основой для ETag.
+// Версию нужно увеличивать после записи в БД, а читать — до чтения из БД.
+@Service
+public class CatalogVersion {
+
+    // Начальное значение — время запуска, чтобы ETag не повторялись после перезапуска
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+
+    // Строгий ETag для ресурса каталога в текущей версии
+    public String etag(String resource) {
+        return "\"" + resource + "-v" + Long.toString(current(), 36) + "\"";
+    }
+
+    // Сравнение с заголовком If-None-Match (список тегов, "*" или слабые теги W/"...").
+    // Только для ресурсов, которые существуют всегда: "*" совпадает с любым текущим представлением
+    public static boolean matches(String ifNoneMatch, String etag) {
+        return isWildcard(ifNoneMatch) || matchesTag(ifNoneMatch, etag);
+    }
+
+    // If-None-Match: * — совпадает, только если у ресурса есть текущее представление
+    public static boolean isWildcard(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (candidate.trim().equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Совпадение с одним из перечисленных тегов, без учёта "*"
+    public static boolean matchesTag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
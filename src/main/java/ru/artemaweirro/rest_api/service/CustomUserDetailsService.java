@@ -3,17 +3,19 @@ package ru.artemaweirro.rest_api.service;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
 
 import java.util.Collection;
 import java.util.List;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -34,6 +36,14 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
     }
 
+    // Вызывается после успешного входа (AuthController), если хеш пароля устарел
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = (User) user;
+        entity.setPassword(newPassword);
+        return userRepository.save(entity);
+    }
+
     // Преобразование роли пользователя в authorities для Spring Security
     private Collection<? extends GrantedAuthority> mapRolesToAuthorities(Role role) {
         return List.of(new SimpleGrantedAuthority(role.name()));
@@ -0,0 +1,262 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artemaweirro.rest_api.models.IdempotencyRecord;
+import ru.artemaweirro.rest_api.repositories.IdempotencyRecordRepository;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Поддержка заголовка Idempotency-Key: повтор запроса с тем же ключом получает сохранённый ответ
+// первого выполнения, а не выполняет операцию ещё раз.
+// Ответы хранятся в Caffeine (ограниченный размер, срок idempotency.ttl) и в таблице idempotency_keys —
+// на случай вытеснения из памяти, перезапуска или другого экземпляра приложения. Одновременные запросы
+// с одним ключом ждут первого выполнения; между экземплярами приложения их разводит уникальный ключ в БД,
+// который занимается до выполнения операции.
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    // Признак того, что ответ воспроизведён из хранилища
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+    // Устаревшие записи в БД удаляются после каждого PURGE_EVERY сохранённого ответа
+    private static final int PURGE_EVERY = 100;
+    // Статус записи, пока запрос, занявший ключ, ещё выполняется
+    private static final int IN_PROGRESS = 0;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    // Выполняющиеся и выполненные запросы по пользователю и ключу
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final AtomicInteger storedSincePurge = new AtomicInteger();
+
+    record StoredResponse(String requestHash, int status, String location, String body) {
+    }
+
+    // Ответ текущему запросу и то, что сохранено для повторов (null — ответ не сохраняется)
+    private record Outcome(ResponseEntity<?> response, StoredResponse stored) {
+    }
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${idempotency.cache.max-size:10000}") long maxSize,
+                            @Value("${idempotency.ttl:24h}") Duration ttl,
+                            @Value("${idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public static boolean isValidKey(String key) {
+        return !key.isBlank() && key.length() <= MAX_KEY_LENGTH;
+    }
+
+    // Выполнение action не более одного раза на пару (пользователь, ключ). scope и request задают запрос:
+    // тот же ключ с другим запросом получает 422. Сохраняются только успешные ответы: после ответа
+    // 4xx или 5xx повтор выполнит операцию заново.
+    public ResponseEntity<?> execute(Long userId, String key, String scope, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(scope, request);
+
+        while (true) {
+            CompletableFuture<StoredResponse> pending = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(cacheKey, pending);
+            if (existing != null) {
+                try {
+                    return replay(existing.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS), requestHash);
+                } catch (ExecutionException e) {
+                    // Первое выполнение завершилось без сохранённого ответа — пробуем выполнить сами
+                    continue;
+                } catch (TimeoutException e) {
+                    return inProgress();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return inProgress();
+                }
+            }
+
+            try {
+                Outcome outcome = executeOnce(userId, key, requestHash, action);
+                if (outcome.stored() != null) {
+                    pending.complete(outcome.stored());
+                } else {
+                    responses.asMap().remove(cacheKey, pending);
+                    pending.completeExceptionally(new IllegalStateException("Ответ не сохранён"));
+                }
+                return outcome.response();
+            } catch (RuntimeException e) {
+                responses.asMap().remove(cacheKey, pending);
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private Outcome executeOnce(Long userId, String key, String requestHash, Supplier<ResponseEntity<?>> action) {
+        Optional<IdempotencyRecord> found = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key);
+        if (found.isPresent() && !isExpired(found.get())) {
+            return fromRecord(found.get(), requestHash);
+        }
+
+        // Ключ занимается в БД до выполнения операции: из одновременных запросов на разных экземплярах
+        // приложения операцию выполняет только занявший ключ. Откат транзакции не отменил бы всё —
+        // например, заказ, уже переданный в OrderPlacementQueue
+        IdempotencyRecord claim = new IdempotencyRecord(null, userId, key, requestHash,
+                IN_PROGRESS, null, null, LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                found.ifPresent(expired -> {
+                    idempotencyRecordRepository.delete(expired);
+                    idempotencyRecordRepository.flush();
+                });
+                idempotencyRecordRepository.saveAndFlush(claim);
+            });
+        } catch (DataIntegrityViolationException e) {
+            IdempotencyRecord other = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(() -> e);
+            return fromRecord(other, requestHash);
+        }
+
+        Outcome outcome;
+        try {
+            // Результат операции и ответ фиксируются одной транзакцией
+            outcome = transactionTemplate.execute(status -> {
+                ResponseEntity<?> response = action.get();
+                if (response.getStatusCode().isError()) {
+                    return new Outcome(response, null);
+                }
+                StoredResponse stored = new StoredResponse(
+                        requestHash,
+                        response.getStatusCode().value(),
+                        response.getHeaders().getLocation() == null ? null : response.getHeaders().getLocation().toString(),
+                        toJson(response.getBody()));
+                claim.setStatus(stored.status());
+                claim.setLocation(stored.location());
+                claim.setBody(stored.body());
+                idempotencyRecordRepository.saveAndFlush(claim);
+                return new Outcome(response, stored);
+            });
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+
+        if (outcome.stored() == null) {
+            release(claim);
+        } else if (storedSincePurge.incrementAndGet() % PURGE_EVERY == 0) {
+            idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        }
+        return outcome;
+    }
+
+    // Ответ по записи из БД: сохранённый ответ или 409, если ключ занят выполняющимся запросом
+    private static Outcome fromRecord(IdempotencyRecord record, String requestHash) {
+        if (record.getStatus() == IN_PROGRESS && record.getRequestHash().equals(requestHash)) {
+            return new Outcome(inProgress(), null);
+        }
+        StoredResponse stored = toStored(record);
+        return new Outcome(replay(stored, requestHash), record.getStatus() == IN_PROGRESS ? null : stored);
+    }
+
+    // Ключ освобождается, если ответ не сохраняется: повтор выполнит операцию заново
+    private void release(IdempotencyRecord claim) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.delete(claim));
+        } catch (RuntimeException e) {
+            // Занятый ключ освободится по истечении idempotency.ttl
+            log.warn("Не удалось освободить ключ идемпотентности {}", claim.getIdempotencyKey(), e);
+        }
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    private static StoredResponse toStored(IdempotencyRecord record) {
+        return new StoredResponse(record.getRequestHash(), record.getStatus(), record.getLocation(), record.getBody());
+    }
+
+    // Сохранённое тело отдаётся как есть, без повторной сериализации
+    private static ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(Map.of("error", "Ключ идемпотентности уже использован для другого запроса"));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.location(URI.create(stored.location()));
+        }
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private static ResponseEntity<?> inProgress() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Запрос с этим ключом идемпотентности ещё выполняется"));
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ", e);
+        }
+    }
+
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязан поддерживаться любой реализацией Java
+            throw new IllegalStateException(e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный запрос", e);
+        }
+    }
+}
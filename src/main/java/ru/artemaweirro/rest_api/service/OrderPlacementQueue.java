@@ -0,0 +1,286 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artemaweirro.rest_api.dto.OrderTicketDTO;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+import ru.artemaweirro.rest_api.repositories.OrderRepository;
+import ru.artemaweirro.rest_api.repositories.UserRepository;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Асинхронное оформление заказов (orders.async.enabled): запрос только ставит заказ в ограниченную очередь
+// и получает квитанцию, а один поток-писатель забирает заказы порциями и сохраняет каждую порцию одной
+// транзакцией — один коммит (и одна запись журнала БД на диск) на много заказов.
+// Квитанции хранятся в памяти: ожидающие записи — до её итога, с итогом — ограниченное время
+// (orders.async.ticket-ttl) и в ограниченном числе.
+@Service
+public class OrderPlacementQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPlacementQueue.class);
+    private static final int FINISHED_TICKETS_PER_SLOT = 10;
+
+    private final OrderRepository orderRepository;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingOrder> queue;
+    // Квитанции заказов, ещё не записанных в БД: не истекают, их не больше, чем заказов в очереди и в порции
+    private final Map<String, Ticket> pendingTickets = new ConcurrentHashMap<>();
+    // Квитанции с итогом (PERSISTED, FAILED): хранятся orders.async.ticket-ttl, не больше
+    // FINISHED_TICKETS_PER_SLOT на место в очереди
+    private final Cache<String, Ticket> finishedTickets;
+
+    private volatile boolean running;
+    // Приём заказов закрыт (shutdown)
+    private boolean closed;
+    // Постановка в очередь (под чтением) и закрытие приёма (под записью) не пересекаются:
+    // после закрытия в очередь ничего не добавляется, и оставшееся в ней видит shutdown
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private Thread writer;
+
+    // Заказ в очереди
+    record PendingOrder(String ticket, Long userId, List<Long> bookIds) {
+    }
+
+    // Квитанция и владелец заказа (статус видят только владелец и управляющие)
+    private record Ticket(Long userId, OrderTicketDTO state) {
+    }
+
+    public OrderPlacementQueue(OrderRepository orderRepository,
+                               BookRepository bookRepository,
+                               UserRepository userRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${orders.async.enabled:false}") boolean enabled,
+                               @Value("${orders.async.queue-capacity:10000}") int queueCapacity,
+                               @Value("${orders.async.batch-size:100}") int batchSize,
+                               @Value("${orders.async.max-wait:5ms}") Duration maxWait,
+                               @Value("${orders.async.ticket-ttl:1h}") Duration ticketTtl) {
+        this.orderRepository = orderRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.finishedTickets = Caffeine.newBuilder()
+                .maximumSize((long) queueCapacity * FINISHED_TICKETS_PER_SLOT)
+                .expireAfterWrite(ticketTtl)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Новые заказы больше не принимаются; уже принятые записываются до остановки. Заказы, которые
+    // поток-писатель не успел записать за 10 секунд, не теряются молча: их квитанции получают FAILED
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        acceptLock.writeLock().lock();
+        try {
+            closed = true;
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            if (writer.isAlive()) {
+                log.warn("Поток записи заказов не завершился за 10 секунд");
+            }
+        }
+
+        List<PendingOrder> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        for (PendingOrder pending : unwritten) {
+            finish(pending, new OrderTicketDTO(
+                    pending.ticket(), OrderTicketDTO.Status.FAILED, null, "Приём заказов остановлен, заказ не сохранён"));
+        }
+        if (!unwritten.isEmpty()) {
+            log.warn("При остановке не записано заказов: {}", unwritten.size());
+        }
+    }
+
+    // Постановка заказа в очередь; при заполненной очереди — RejectedExecutionException без ожидания
+    public OrderTicketDTO submit(Long userId, List<Long> bookIds) {
+        acceptLock.readLock().lock();
+        try {
+            if (closed || (enabled && !running)) {
+                throw new RejectedExecutionException("Приём заказов остановлен");
+            }
+            OrderTicketDTO queued = new OrderTicketDTO(
+                    UUID.randomUUID().toString(), OrderTicketDTO.Status.QUEUED, null, null);
+            pendingTickets.put(queued.getTicket(), new Ticket(userId, queued));
+            if (!queue.offer(new PendingOrder(queued.getTicket(), userId, List.copyOf(bookIds)))) {
+                pendingTickets.remove(queued.getTicket());
+                throw new RejectedExecutionException("Очередь заказов переполнена");
+            }
+            return queued;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    // Состояние квитанции; пусто, если квитанция неизвестна, истекла или принадлежит другому пользователю
+    public Optional<OrderTicketDTO> status(String ticket, Long userId, boolean anyUser) {
+        Ticket found = pendingTickets.get(ticket);
+        if (found == null) {
+            found = finishedTickets.getIfPresent(ticket);
+        }
+        if (found == null || (!anyUser && !found.userId().equals(userId))) {
+            return Optional.empty();
+        }
+        return Optional.of(found.state());
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                writeQueued(TimeUnit.MILLISECONDS.toNanos(100));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи порции заказов", e);
+            }
+        }
+    }
+
+    // Одна порция: ждёт первый заказ не дольше pollNanos, затем добирает до batchSize заказов,
+    // ожидая новых не дольше orders.async.max-wait. Возвращает число обработанных заказов.
+    int writeQueued(long pollNanos) throws InterruptedException {
+        PendingOrder first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return 0;
+        }
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        write(batch);
+        return batch.size();
+    }
+
+    // Запись порции одной транзакцией. Если транзакция не удалась, заказы записываются по одному,
+    // чтобы ошибка одного заказа не отменяла остальные
+    private void write(List<PendingOrder> batch) {
+        Map<String, OrderTicketDTO> results;
+        try {
+            results = transactionTemplate.execute(status -> persist(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                for (PendingOrder pending : batch) {
+                    write(List.of(pending));
+                }
+                return;
+            }
+            log.warn("Заказ по квитанции {} не сохранён", batch.get(0).ticket(), e);
+            results = Map.of(batch.get(0).ticket(), new OrderTicketDTO(
+                    batch.get(0).ticket(), OrderTicketDTO.Status.FAILED, null, "Заказ не сохранён"));
+        }
+        // Статус меняется только после коммита
+        for (PendingOrder pending : batch) {
+            finish(pending, results.get(pending.ticket()));
+        }
+    }
+
+    // Итог заказа: квитанция переходит в ограниченный по размеру и времени кэш
+    private void finish(PendingOrder pending, OrderTicketDTO result) {
+        // Сначала итог, затем удаление из ожидающих — квитанция не пропадает ни на момент
+        finishedTickets.put(pending.ticket(), new Ticket(pending.userId(), result));
+        pendingTickets.remove(pending.ticket());
+    }
+
+    private Map<String, OrderTicketDTO> persist(List<PendingOrder> batch) {
+        // Книги всей порции — одним запросом
+        Set<Long> bookIds = batch.stream()
+                .flatMap(pending -> pending.bookIds().stream())
+                .collect(Collectors.toSet());
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        Map<String, OrderTicketDTO> results = new HashMap<>();
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<String> orderTickets = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            // Как и при синхронном оформлении: неизвестные id пропускаются, повторы схлопываются
+            Set<Book> orderBooks = pending.bookIds().stream()
+                    .map(books::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (orderBooks.isEmpty()) {
+                results.put(pending.ticket(), new OrderTicketDTO(
+                        pending.ticket(), OrderTicketDTO.Status.FAILED, null, "Книги не найдены"));
+                continue;
+            }
+            Order order = new Order();
+            order.setUser(userRepository.getReferenceById(pending.userId()));
+            order.setBooks(orderBooks);
+            order.setTotalPrice(orderBooks.stream()
+                    .mapToDouble(Book::getPrice)
+                    .sum());
+            orders.add(order);
+            orderTickets.add(pending.ticket());
+        }
+
+        // id выдаются из последовательности при сохранении, вставки уходят пакетами при коммите
+        orderRepository.saveAll(orders);
+        for (int i = 0; i < orders.size(); i++) {
+            String ticket = orderTickets.get(i);
+            results.put(ticket, new OrderTicketDTO(
+                    ticket, OrderTicketDTO.Status.PERSISTED, orders.get(i).getId(), null));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.artemaweirro.rest_api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.artemaweirro.rest_api.dto.HashingStatsDTO;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Отдельный ограниченный пул для хеширования и проверки паролей (BCrypt нагружает CPU).
+// Потоков столько же, сколько ядер, очередь ограничена: при переполнении задача сразу отклоняется
+// с RejectedExecutionException, и вход/регистрация не занимают потоки Tomcat, нужные остальным запросам.
+// В пул передаётся только работа BCrypt: обращения к БД выполняются вне его (см. AuthController).
+// Метрики пула (executor.* с тегом name=password-hashing), время ожидания в очереди и хеширования
+// (auth.hashing.wait, auth.hashing.duration) и число отказов (auth.hashing.rejected) публикуются в Micrometer.
+@Service
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final Timer waitTimer;
+    private final Timer hashingTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(@Value("${auth.hashing.threads:0}") int threads,
+                                   @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        // 0 — по числу доступных ядер
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Размер пула, активные задачи, длина очереди и свободное место в ней
+        new ExecutorServiceMetrics(executor, "password-hashing", Tags.empty()).bindTo(meterRegistry);
+        this.waitTimer = Timer.builder("auth.hashing.wait")
+                .description("Время ожидания задачи хеширования в очереди")
+                .register(meterRegistry);
+        this.hashingTimer = Timer.builder("auth.hashing.duration")
+                .description("Время хеширования или проверки пароля")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.hashing.rejected")
+                .description("Задачи, отклонённые из-за заполненной очереди")
+                .register(meterRegistry);
+    }
+
+    // Выполнение задачи в пуле; при заполненной очереди — RejectedExecutionException без ожидания
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                waitTimer.record(start - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    record(System.nanoTime() - start);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            rejectedCounter.increment();
+            throw e;
+        }
+    }
+
+    private void record(long nanos) {
+        completed.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        hashingTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public HashingStatsDTO stats() {
+        long done = completed.sum();
+        return new HashingStatsDTO(
+                executor.getCorePoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                queueCapacity,
+                done,
+                rejected.sum(),
+                done == 0 ? 0 : totalNanos.sum() / (double) done / 1_000_000,
+                maxNanos.get() / 1_000_000.0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
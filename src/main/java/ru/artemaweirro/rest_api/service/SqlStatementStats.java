@@ -0,0 +1,166 @@
+package ru.artemaweirro.rest_api.service;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.artemaweirro.rest_api.dto.SqlStatementStatsDTO;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Замер каждого SQL-запроса (вызывается прокси DataSource, см. DataSourceProxyConfig).
+// В лог попадают только медленные запросы и случайная выборка остальных — без значений параметров,
+// только их типы, и с методом контроллера, из которого запрос выполнен.
+// По каждому виду запроса копятся количество, суммарное и максимальное время.
+@Component
+public class SqlStatementStats implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger("sql");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Списки IN разной длины (пакетная загрузка книг) считаются одним видом запроса
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final String OTHER = "(другие запросы)";
+
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int maxStatements;
+    private final Map<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+
+    private static final class Aggregate {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    public SqlStatementStats(@Value("${sql.log.slow-threshold:200ms}") Duration slowThreshold,
+                             @Value("${sql.log.sample-rate:0}") double sampleRate,
+                             @Value("${sql.stats.max-statements:1000}") int maxStatements) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // Время выполнения относится ко всему вызову (для пакета — ко всем запросам пакета сразу)
+        long nanos = Duration.ofMillis(execInfo.getElapsedTime()).toNanos();
+        String statement = queryInfoList.size() == 1
+                ? normalize(queryInfoList.get(0).getQuery())
+                : queryInfoList.stream().map(q -> normalize(q.getQuery())).distinct().collect(Collectors.joining("; "));
+
+        aggregate(statement).record(nanos);
+
+        boolean slow = nanos >= slowThresholdNanos;
+        if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            String message = "{} ms [{}] {} params={}";
+            Object[] args = {execInfo.getElapsedTime(), origin(), statement, parameterShapes(queryInfoList)};
+            if (slow) {
+                log.warn(message, args);
+            } else {
+                log.info(message, args);
+            }
+        }
+    }
+
+    private Aggregate aggregate(String statement) {
+        Aggregate aggregate = aggregates.get(statement);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        // Число видов запросов ограничено, чтобы запросы с подставленными литералами не заполнили память
+        if (aggregates.size() >= maxStatements) {
+            return aggregates.computeIfAbsent(OTHER, key -> new Aggregate());
+        }
+        return aggregates.computeIfAbsent(statement, key -> new Aggregate());
+    }
+
+    public List<SqlStatementStatsDTO> stats() {
+        return aggregates.entrySet().stream()
+                .map(entry -> {
+                    Aggregate aggregate = entry.getValue();
+                    long count = aggregate.count.sum();
+                    double totalMillis = aggregate.totalNanos.sum() / 1_000_000.0;
+                    return new SqlStatementStatsDTO(entry.getKey(), count, totalMillis,
+                            count == 0 ? 0 : totalMillis / count,
+                            aggregate.maxNanos.get() / 1_000_000.0);
+                })
+                .sorted(Comparator.comparingDouble(SqlStatementStatsDTO::getTotalMillis).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        aggregates.clear();
+    }
+
+    static String normalize(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("(?, ...)");
+    }
+
+    // Типы параметров первого набора (для пакета — число наборов), например [Long, String(12)] x3
+    static String parameterShapes(List<QueryInfo> queryInfoList) {
+        for (QueryInfo queryInfo : queryInfoList) {
+            List<List<ParameterSetOperation>> sets = queryInfo.getParametersList();
+            if (sets.isEmpty()) {
+                continue;
+            }
+            String shapes = sets.get(0).stream()
+                    .map(operation -> shape(operation.getArgs()[1]))
+                    .collect(Collectors.joining(", ", "[", "]"));
+            return sets.size() > 1 ? shapes + " x" + sets.size() : shapes;
+        }
+        return "[]";
+    }
+
+    private static String shape(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    // Метод контроллера, обрабатывающий текущий запрос; вне HTTP-запроса — "-"
+    private static String origin() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "-";
+        }
+        Object handler = attributes.getAttribute(
+                HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (handler instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,78 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthenticatedUser;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэш состояния пользователей (id, имя, роль) по имени для аутентификации запросов без обращения к БД.
+// Записи сбрасываются UserController при изменении или удалении пользователя;
+// время жизни записи ограничивает задержку, если пользователь изменён в обход API.
+@Service
+public class UserStateCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, AuthenticatedUser> cache;
+    // Счётчик сбросов кэша
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserStateCache(UserRepository userRepository,
+                          @Value("${users.cache.max-size:10000}") long maxSize,
+                          @Value("${users.cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Пользователь по имени; отсутствующие пользователи не кэшируются.
+    // Как и в BookCache, запрос к БД выполняется вне блокировки кэша, а результат не остаётся в кэше,
+    // если за время загрузки пользователи изменялись: иначе удалённый или пониженный в правах
+    // пользователь аутентифицировался бы со старой ролью до истечения записи.
+    public Optional<AuthenticatedUser> get(String username) {
+        AuthenticatedUser cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generationBefore = generation.get();
+        Optional<AuthenticatedUser> loaded = userRepository.findByUsername(username).map(AuthenticatedUser::of);
+        if (loaded.isPresent()) {
+            cache.put(username, loaded.get());
+            // Проверка после записи: сброс мог пройти между загрузкой и put
+            if (generation.get() != generationBefore) {
+                cache.invalidate(username);
+            }
+        }
+        return loaded;
+    }
+
+    // Пользователь запроса: берётся из аутентификации, установленной JwtAuthenticationFilter,
+    // а если principal другого вида — ищется по имени
+    public Optional<AuthenticatedUser> resolve(Principal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return get(principal.getName());
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            generation.incrementAndGet();
+            cache.invalidate(username);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+-- Исходная схема. Таблицы совпадают с теми, что раньше создавал ddl-auto=update, поэтому
+-- на существующей базе (baseline-version=0) миграция только добавляет недостающие индексы.
+
+create table if not exists users (
+    id       bigint generated by default as identity primary key,
+    username varchar(255) not null unique,
+    password varchar(255) not null,
+    role     varchar(255) check (role in ('ADMIN', 'MODERATOR', 'USER'))
+);
+
+create table if not exists books (
+    id          bigint generated by default as identity primary key,
+    title       varchar(255),
+    author      varchar(255),
+    price       float(53) not null,
+    description varchar(255)
+);
+
+create table if not exists orders (
+    id          bigint generated by default as identity primary key,
+    user_id     bigint not null references users (id),
+    total_price float(53) not null,
+    created_at  timestamp(6)
+);
+
+create table if not exists order_books (
+    order_id bigint not null references orders (id),
+    book_id  bigint not null references books (id)
+);
+
+-- Каталог: keyset-страницы по названию и по цене (id — первичный ключ)
+create index if not exists idx_books_title_id on books (title, id);
+create index if not exists idx_books_price_id on books (price, id);
+
+-- Поиск по подстроке названия без учёта регистра (upper(title) like upper(?)),
+-- в том числе реактивный /api/reactive/books/by-title/
+create extension if not exists pg_trgm;
+create index if not exists idx_books_title_trgm on books using gin (upper(title) gin_trgm_ops);
+
+-- Заказы: findByUserId и поиск с фильтром по пользователю и без, от новых к старым
+create index if not exists idx_orders_user_created_id on orders (user_id, created_at, id);
+create index if not exists idx_orders_created_id on orders (created_at, id);
+
+-- Книги заказа (загрузка списка заказов) и заказы с книгой (удаление книги)
+create index if not exists idx_order_books_order_book on order_books (order_id, book_id);
+create index if not exists idx_order_books_book_order on order_books (book_id, order_id);
@@ -0,0 +1,14 @@
+-- Книги заказа теперь множество (Order.books — Set): строка order_books однозначно задаётся парой
+-- (order_id, book_id), по ней Hibernate удаляет отдельные строки при изменении заказа.
+
+-- Повторы пары, если они остались от прежнего отображения списком
+delete from order_books a
+    using order_books b
+    where a.order_id = b.order_id
+      and a.book_id = b.book_id
+      and a.ctid > b.ctid;
+
+alter table order_books add primary key (order_id, book_id);
+
+-- Первичный ключ заменяет индекс (order_id, book_id)
+drop index if exists idx_order_books_order_book;
@@ -0,0 +1,18 @@
+-- id сущностей выдаются Hibernate из последовательностей блоками по 50 (allocationSize) вместо identity.
+-- Hibernate считает значение nextval верхней границей блока, поэтому последовательность начинается
+-- с max(id) + 50: первый блок — max(id) + 1 .. max(id) + 50, существующие id не пересекаются с новыми.
+
+create sequence if not exists books_seq increment by 50;
+select setval('books_seq', (select coalesce(max(id), 0) from books) + 50, false);
+alter table books alter column id drop identity if exists;
+alter table books alter column id drop default;
+
+create sequence if not exists orders_seq increment by 50;
+select setval('orders_seq', (select coalesce(max(id), 0) from orders) + 50, false);
+alter table orders alter column id drop identity if exists;
+alter table orders alter column id drop default;
+
+create sequence if not exists users_seq increment by 50;
+select setval('users_seq', (select coalesce(max(id), 0) from users) + 50, false);
+alter table users alter column id drop identity if exists;
+alter table users alter column id drop default;
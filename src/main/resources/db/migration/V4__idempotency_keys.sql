@@ -0,0 +1,20 @@
+-- Сохранённые ответы на запросы с заголовком Idempotency-Key (см. IdempotencyStore).
+-- Уникальность ключа в пределах пользователя обеспечивает БД: из двух одновременных запросов
+-- с одним ключом на разных экземплярах приложения сохранится только один.
+
+create sequence if not exists idempotency_keys_seq increment by 50;
+
+create table if not exists idempotency_keys (
+    id              bigint primary key,
+    user_id         bigint       not null,
+    idempotency_key varchar(255) not null,
+    request_hash    varchar(64)  not null,
+    status          integer      not null,
+    location        varchar(255),
+    body            text,
+    created_at      timestamp(6) not null,
+    constraint uk_idempotency_keys_user_key unique (user_id, idempotency_key)
+);
+
+-- Удаление устаревших записей
+create index if not exists idx_idempotency_keys_created_at on idempotency_keys (created_at);
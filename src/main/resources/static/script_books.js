@@ -1,6 +1,6 @@
 async function fetchBooks() {
 try {
-  const response = await fetch('/api/books/', {
+  const response = await fetch('/api/books/?view=summary', {
     headers: {
       'Authorization': 'Bearer ' + localStorage.getItem('token')
     }
@@ -97,7 +97,7 @@ function renderAuthLinks() {
 
 async function searchBooksByTitle(title) {
     try {
-        const response = await fetch(`/api/books/by-title/?title=${encodeURIComponent(title)}`, {
+        const response = await fetch(`/api/books/by-title/?title=${encodeURIComponent(title)}&view=summary`, {
             headers: {
                 'Authorization': 'Bearer ' + localStorage.getItem('token')
             }
@@ -0,0 +1,55 @@
+package ru.artemaweirro.rest_api.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.artemaweirro.rest_api.reactive.ReactiveBookRepository;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Контекст целиком: рядом с R2DBC поднимаются пул JDBC и JPA, и оба пути читают одну базу
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:contextdb;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.r2dbc.url=r2dbc:h2:mem:///contextdb?options=DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        // Миграции Flyway написаны для PostgreSQL, поэтому схема H2 создаётся по сущностям
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class DataSourceConfigTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReactiveBookRepository reactiveBookRepository;
+
+    @Test
+    void testJpaAndR2dbcBothStart() throws Exception {
+        assertTrue(dataSource.isWrapperFor(HikariDataSource.class));
+        assertNotNull(entityManagerFactory);
+        assertNotNull(connectionFactory);
+
+        assertEquals(0, bookRepository.count());
+        assertEquals(0, reactiveBookRepository.count().block().longValue());
+    }
+}
@@ -0,0 +1,174 @@
+package ru.artemaweirro.rest_api.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.artemaweirro.rest_api.controllers.AuthController;
+import ru.artemaweirro.rest_api.dto.AuthRequest;
+import ru.artemaweirro.rest_api.dto.AuthResponse;
+import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
+import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.JwtTokenProvider;
+import ru.artemaweirro.rest_api.service.CustomUserDetailsService;
+import ru.artemaweirro.rest_api.service.PasswordHashingExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthControllerTest {
+
+    @Mock
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private final PasswordHashingExecutor passwordHashingExecutor =
+            new PasswordHashingExecutor(1, 4, new SimpleMeterRegistry());
+
+    // Потоки для работы с БД после хеширования
+    private final ExecutorService taskExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "task-executor"));
+
+    private AuthController authController;
+
+    private AuthRequest request;
+
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        authController = new AuthController(jwtTokenProvider, userRepository, customUserDetailsService,
+                passwordEncoder, passwordHashingExecutor, taskExecutor);
+
+        request = new AuthRequest();
+        request.setUsername("user");
+        request.setPassword("password");
+
+        user.setUsername("user");
+        user.setPassword("{bcrypt}hash");
+        user.setRole(Role.USER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingExecutor.shutdown();
+        taskExecutor.shutdownNow();
+    }
+
+    private static void assertOnThread(String prefix) {
+        assertTrue(Thread.currentThread().getName().startsWith(prefix), Thread.currentThread().getName());
+    }
+
+    @Test
+    void testLogin_success() throws Exception {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("password", "{bcrypt}hash")).thenAnswer(invocation -> {
+            assertOnThread("password-hashing-");
+            return true;
+        });
+        when(jwtTokenProvider.createToken("user", "USER")).thenReturn("token");
+
+        ResponseEntity<?> response = authController.login(request).get();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("token", ((AuthResponse) response.getBody()).getToken());
+        verifyNoInteractions(customUserDetailsService);
+    }
+
+    @Test
+    void testLogin_badCredentials() throws Exception {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("password", "{bcrypt}hash")).thenReturn(false);
+
+        ResponseEntity<?> response = authController.login(request).get();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    }
+
+    @Test
+    void testLogin_unknownUserStillChecksPassword() throws Exception {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode("userNotFoundPassword")).thenReturn("{bcrypt}dummy");
+        when(passwordEncoder.matches("password", "{bcrypt}dummy")).thenReturn(false);
+
+        ResponseEntity<?> response = authController.login(request).get();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        verify(passwordEncoder).matches("password", "{bcrypt}dummy");
+    }
+
+    @Test
+    void testLogin_outdatedHashIsSavedOutsideHashingPool() throws Exception {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("password", "{bcrypt}hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("{bcrypt}hash")).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn("{bcrypt}new-hash");
+        when(customUserDetailsService.updatePassword(user, "{bcrypt}new-hash")).thenAnswer(invocation -> {
+            assertOnThread("task-executor");
+            return user;
+        });
+        when(jwtTokenProvider.createToken("user", "USER")).thenReturn("token");
+
+        ResponseEntity<?> response = authController.login(request).get();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(customUserDetailsService).updatePassword(user, "{bcrypt}new-hash");
+    }
+
+    @Test
+    void testLogin_overloaded() throws Exception {
+        PasswordHashingExecutor saturated = mock(PasswordHashingExecutor.class);
+        when(saturated.submit(any())).thenThrow(new RejectedExecutionException());
+        authController = new AuthController(jwtTokenProvider, userRepository, customUserDetailsService,
+                passwordEncoder, saturated, taskExecutor);
+
+        ResponseEntity<?> response = authController.login(request).get();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    @Test
+    void testRegister_hashesOffRequestThread() throws Exception {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode("password")).thenAnswer(invocation -> {
+            assertOnThread("password-hashing-");
+            return "{bcrypt}hash";
+        });
+        // Сохранение пользователя — не в пуле хеширования
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            assertOnThread("task-executor");
+            return invocation.getArgument(0);
+        });
+        when(jwtTokenProvider.createToken("user", "USER")).thenReturn("token");
+
+        ResponseEntity<?> response = authController.register(request).get();
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(userRepository).save(argThat(saved -> "{bcrypt}hash".equals(saved.getPassword())));
+    }
+}
@@ -4,19 +4,40 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.data.domain.Limit;
 import ru.artemaweirro.rest_api.dto.BookDTO;
+import ru.artemaweirro.rest_api.dto.BookImportResultDTO;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
+import ru.artemaweirro.rest_api.dto.CursorPageDTO;
 import ru.artemaweirro.rest_api.models.Book;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.artemaweirro.rest_api.configs.AsyncConfig;
 import ru.artemaweirro.rest_api.controllers.BookController;
 import ru.artemaweirro.rest_api.mappers.BookMapper;
+import ru.artemaweirro.rest_api.mappers.CursorCodec;
 import ru.artemaweirro.rest_api.repositories.BookRepository;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
-
+import ru.artemaweirro.rest_api.service.BookCache;
+import ru.artemaweirro.rest_api.service.BookExportService;
+import ru.artemaweirro.rest_api.service.BookImportService;
+import ru.artemaweirro.rest_api.service.BookSearchIndex;
+import ru.artemaweirro.rest_api.service.CatalogVersion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,11 +54,24 @@ class BookControllerTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookExportService bookExportService;
+
+    @Mock
+    private BookImportService bookImportService;
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+
     private BookController bookController;
 
     @BeforeEach
     void setUp() {
-        bookController = new BookController(bookRepository, userRepository, bookMapper);
+        bookController = new BookController(bookRepository, userRepository, bookMapper, bookSearchIndex,
+                new BookCache(100, Duration.ofMinutes(10)), catalogVersion, bookExportService,
+                bookImportService);
     }
 
     @Test
@@ -61,20 +95,90 @@ class BookControllerTest {
         List<Book> expectedBooks = List.of(book_first, book_second);
 
         // Мокаем вызов репозитория
-        when(bookRepository.findAll()).thenReturn(expectedBooks);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(expectedBooks);
 
-        // Вызываем контроллер
-        List<Book> actualBooks = bookController.getAllBooks();
+        // Вызываем контроллер без параметров пагинации
+        ResponseEntity<?> response = bookController.getAllBooks(null, null, "id", "full", null);
 
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<?> actualBooks = (List<?>) response.getBody();
         // Проверяем, что вернулся именно тот список
         assertEquals(expectedBooks, actualBooks);
         // Дополнительно проверить размер
         assertEquals(2, actualBooks.size());
-        // Можно проверить поля первой книги
-        assertEquals(1L, actualBooks.get(0).getId());
-        assertEquals("First Book", actualBooks.get(0).getTitle());
-        // Проверяем, что репозиторий был вызван ровно один раз
-        verify(bookRepository, times(1)).findAll();
+        // Проверяем, что репозиторий был вызван ровно один раз и с ограничением размера
+        verify(bookRepository, times(1))
+                .findByIdGreaterThanOrderByIdAsc(0L, Limit.of(BookController.LEGACY_LIST_LIMIT));
+        verify(bookRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetAllBooks_CursorPage() {
+        Book book_first = new Book();
+        book_first.setId(11L);
+        Book book_second = new Book();
+        book_second.setId(12L);
+        Book book_third = new Book();
+        book_third.setId(13L);
+
+        // Запрошено 2 книги — репозиторий просят вернуть на одну больше
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(10L, Limit.of(3)))
+                .thenReturn(List.of(book_first, book_second, book_third));
+
+        ResponseEntity<?> response = bookController.getAllBooks("10", 2, "id", "full", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPageDTO<?> page = (CursorPageDTO<?>) response.getBody();
+        assertEquals(List.of(book_first, book_second), page.getItems());
+        assertEquals("12", page.getNext());
+    }
+
+    @Test
+    void testGetAllBooks_TitleCursorRoundTrip() {
+        Book book = new Book();
+        book.setId(5L);
+        book.setTitle("Дюна");
+
+        when(bookRepository.findPageByTitleAfter("Анна Каренина", 7L, Limit.of(2))).thenReturn(List.of(book));
+
+        ResponseEntity<?> response = bookController.getAllBooks(
+                CursorCodec.encode("Анна Каренина", 7L), 1, "title", "full", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPageDTO<?> page = (CursorPageDTO<?>) response.getBody();
+        assertEquals(List.of(book), page.getItems());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void testGetAllBooks_SummaryView() {
+        BookSummaryDTO first = new BookSummaryDTO(3L, "Анна Каренина", "Толстой", 300.0);
+        BookSummaryDTO second = new BookSummaryDTO(4L, "Дюна", "Герберт", 400.0);
+        when(bookRepository.findSummaryPageOrderByPrice(Limit.of(2))).thenReturn(List.of(first, second));
+
+        ResponseEntity<?> response = bookController.getAllBooks(null, 1, "price", "summary", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPageDTO<?> page = (CursorPageDTO<?>) response.getBody();
+        assertEquals(List.of(first), page.getItems());
+        assertArrayEquals(new String[]{"300.0", "3"}, CursorCodec.decode(page.getNext()));
+        verify(bookRepository, never()).findAllByOrderByPriceAscIdAsc(any());
+    }
+
+    @Test
+    void testGetAllBooks_InvalidView() {
+        ResponseEntity<?> response = bookController.getAllBooks(null, null, "id", "compact", null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void testGetAllBooks_InvalidCursor() {
+        ResponseEntity<?> response = bookController.getAllBooks("not-a-cursor", 10, "title", "full", null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(bookRepository);
     }
 
     @Test
@@ -90,17 +194,124 @@ class BookControllerTest {
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
         when(bookMapper.toDto(book)).thenReturn(dto);
 
-        ResponseEntity<?> response = bookController.getBookById(1L);
+        ResponseEntity<?> response = bookController.getBookById(1L, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(dto, response.getBody());
+    }
+
+    @Test
+    void testGetBookById_ServedFromCache() {
+        Book book = new Book();
+        book.setId(1L);
+        BookDTO dto = new BookDTO();
+        dto.setId(1L);
+
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book)).thenReturn(dto);
+
+        bookController.getBookById(1L, null);
+        ResponseEntity<?> response = bookController.getBookById(1L, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(dto, response.getBody());
+        // Повторный запрос не обращается к БД
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testDeleteBook_InvalidatesCache() {
+        Book book = new Book();
+        book.setId(1L);
+
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book), Optional.empty());
+        when(bookMapper.toDto(book)).thenReturn(new BookDTO());
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        bookController.getBookById(1L, null);
+        bookController.deleteBook(1L);
+        ResponseEntity<?> response = bookController.getBookById(1L, null);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testGetBookById_NotModified() {
+        Book book = new Book();
+        book.setId(1L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book)).thenReturn(new BookDTO());
+
+        ResponseEntity<?> first = bookController.getBookById(1L, null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        // Тот же ETag — 304 без тела
+        ResponseEntity<?> second = bookController.getBookById(1L, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+
+        // После изменения каталога ETag уже не совпадает
+        catalogVersion.bump();
+        ResponseEntity<?> third = bookController.getBookById(1L, etag);
+        assertEquals(HttpStatus.OK, third.getStatusCode());
+    }
+
+    @Test
+    void testGetBookById_WildcardMatchesOnlyExistingBook() {
+        Book book = new Book();
+        book.setId(1L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.findById(2L)).thenReturn(Optional.empty());
+        when(bookMapper.toDto(book)).thenReturn(new BookDTO());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, bookController.getBookById(1L, "*").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, bookController.getBookById(2L, "*").getStatusCode());
+    }
+
+    @Test
+    void testGetAllBooks_NotModified() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of());
+        String etag = bookController.getAllBooks(null, null, "id", "full", null).getHeaders().getETag();
+
+        ResponseEntity<?> response = bookController.getAllBooks(null, null, "id", "full", "W/" + etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        // Повторный запрос не обращается к БД
+        verify(bookRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class));
+    }
+
+    @Test
+    void testGetAllBooks_PagesHaveDistinctEtags() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(bookRepository.findSummaryPageByIdAfter(anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        List<String> etags = List.of(
+                bookController.getAllBooks(null, null, "id", "full", null).getHeaders().getETag(),
+                bookController.getAllBooks(null, 2, "id", "full", null).getHeaders().getETag(),
+                bookController.getAllBooks("2", 2, "id", "full", null).getHeaders().getETag(),
+                bookController.getAllBooks("2", 3, "id", "full", null).getHeaders().getETag(),
+                bookController.getAllBooks("2", 2, "id", "summary", null).getHeaders().getETag());
+
+        assertEquals(etags.size(), Set.copyOf(etags).size());
+        // Тег первой страницы не подходит для второй
+        ResponseEntity<?> second = bookController.getAllBooks("2", 2, "id", "full", etags.get(1));
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+    }
+
+    @Test
+    void testGetAllBooks_InvalidParametersWinOverEtag() {
+        ResponseEntity<?> response = bookController.getAllBooks(null, 1, "author", "full", "*");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
     @Test
     void testGetBookById_BookNotFound() {
         when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
-        ResponseEntity<?> response = bookController.getBookById(1L);
+        ResponseEntity<?> response = bookController.getBookById(1L, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
@@ -255,4 +466,94 @@ class BookControllerTest {
         verify(bookRepository, never()).deleteById(any());
     }
 
+    @Test
+    void testGetBooksByTitle_UsesIndexOrder() {
+        Book book_first = new Book();
+        book_first.setId(1L);
+        book_first.setTitle("Война и мир");
+
+        Book book_second = new Book();
+        book_second.setId(2L);
+        book_second.setTitle("Мир");
+
+        when(bookSearchIndex.isReady()).thenReturn(true);
+        when(bookSearchIndex.searchByTitle("мир", BookController.DEFAULT_SEARCH_LIMIT)).thenReturn(List.of(
+                new BookSummaryDTO(2L, "Мир", null, null),
+                new BookSummaryDTO(1L, "Война и мир", null, null)));
+        // Репозиторий возвращает книги в произвольном порядке
+        when(bookRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(book_first, book_second));
+
+        ResponseEntity<Object> response = bookController.getBooksByTitle("мир", BookController.DEFAULT_SEARCH_LIMIT, "full");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(book_second, book_first), response.getBody());
+        verify(bookRepository, never()).findByTitleContainingIgnoreCase(any());
+    }
+
+    @Test
+    void testGetBooksByTitle_SummaryViewServedFromIndex() {
+        List<BookSummaryDTO> summaries = List.of(new BookSummaryDTO(2L, "Мир", "Автор", 100.0));
+        when(bookSearchIndex.isReady()).thenReturn(true);
+        when(bookSearchIndex.searchByTitle("мир", BookController.DEFAULT_SEARCH_LIMIT)).thenReturn(summaries);
+
+        ResponseEntity<Object> response = bookController.getBooksByTitle("мир", BookController.DEFAULT_SEARCH_LIMIT, "summary");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(summaries, response.getBody());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void testGetBooksByTitle_IndexNotReady() {
+        when(bookSearchIndex.isReady()).thenReturn(false);
+        when(bookRepository.findByTitleContainingIgnoreCase("мир")).thenReturn(List.of());
+
+        ResponseEntity<Object> response = bookController.getBooksByTitle("мир", BookController.DEFAULT_SEARCH_LIMIT, "full");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testExportBooks_StreamsNdjson() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResponseEntity<StreamingResponseBody> response = bookController.exportBooks("ndjson", request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        // Долгий таймаут асинхронной обработки — только для выгрузки
+        assertNotNull(request.getAttribute(AsyncConfig.LONG_RUNNING_ATTRIBUTE));
+
+        // Выгрузка выполняется только при записи тела ответа
+        verifyNoInteractions(bookExportService);
+        OutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(bookExportService).export(out, true);
+    }
+
+    @Test
+    void testExportBooks_UnknownFormat() {
+        assertThrows(ResponseStatusException.class, () -> bookController.exportBooks("xml", new MockHttpServletRequest()));
+    }
+
+    @Test
+    void testImportBooks_DetectsFormat() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        BookImportResultDTO result = new BookImportResultDTO();
+        when(bookImportService.importBooks(body, BookImportService.Format.NDJSON, 100)).thenReturn(result);
+
+        ResponseEntity<?> response = bookController.importBooks(MediaType.APPLICATION_NDJSON, 100, body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void testImportBooks_InvalidBatchSize() throws Exception {
+        ResponseEntity<?> response = bookController.importBooks(
+                MediaType.parseMediaType("text/csv"), 0, new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(bookImportService);
+    }
+
 }
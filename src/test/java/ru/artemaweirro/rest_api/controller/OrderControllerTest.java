@@ -1,32 +1,67 @@
 package ru.artemaweirro.rest_api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.artemaweirro.rest_api.controllers.OrderController;
+import ru.artemaweirro.rest_api.dto.CompactOrderPageDTO;
+import ru.artemaweirro.rest_api.dto.CursorPageDTO;
+import ru.artemaweirro.rest_api.dto.OrderDTO;
 import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
 import ru.artemaweirro.rest_api.dto.OrderRequestDTO;
+import ru.artemaweirro.rest_api.dto.OrderTicketDTO;
+import ru.artemaweirro.rest_api.mappers.CursorCodec;
 import ru.artemaweirro.rest_api.mappers.OrderMapper;
 import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.IdempotencyRecord;
 import ru.artemaweirro.rest_api.models.Order;
-import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.BookRepository;
+import ru.artemaweirro.rest_api.repositories.IdempotencyRecordRepository;
 import ru.artemaweirro.rest_api.repositories.OrderRepository;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.service.IdempotencyStore;
+import ru.artemaweirro.rest_api.service.OrderPlacementQueue;
+import ru.artemaweirro.rest_api.service.UserStateCache;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +75,10 @@ public class OrderControllerTest {
     private UserRepository userRepository;
     @Mock
     private OrderMapper orderMapper;
+    @Mock
+    private OrderPlacementQueue orderPlacementQueue;
+    @Mock
+    private IdempotencyStore idempotencyStore;
 
     private OrderController orderController;
 
@@ -50,7 +89,8 @@ public class OrderControllerTest {
 
     @BeforeEach
     void setUp() {
-        orderController = new OrderController(orderRepository, userRepository, bookRepository, orderMapper);
+        orderController = new OrderController(orderRepository, userRepository, bookRepository, orderMapper,
+                new UserStateCache(userRepository, 100, Duration.ofMinutes(5)), orderPlacementQueue, idempotencyStore);
 
         adminUser.setId(1L);
         adminUser.setUsername("admin");
@@ -66,26 +106,115 @@ public class OrderControllerTest {
     void testGetAllOrders_asAdmin() {
         List<Order> orders = List.of(new Order(), new Order());
         when(userRepository.findByUsername("admin")).thenReturn(Optional.of(adminUser));
-        when(orderRepository.findAll()).thenReturn(orders);
+        when(orderRepository.findPage(any(), eq(OrderController.LEGACY_LIST_LIMIT))).thenReturn(orders);
         when(orderMapper.toInfoDto(any())).thenReturn(new OrderInfoDTO());
 
-        ResponseEntity<?> response = orderController.getAllOrders(adminPrincipal);
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, null, null, null, null, "full", adminPrincipal);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(orderRepository).findAll();
+        assertEquals(2, ((List<?>) response.getBody()).size());
     }
 
     @Test
     void testGetAllOrders_asUser() {
         List<Order> userOrders = List.of(new Order());
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
-        when(orderRepository.findByUserId(regularUser.getId())).thenReturn(userOrders);
+        when(orderRepository.findPage(any(), eq(OrderController.LEGACY_LIST_LIMIT))).thenReturn(userOrders);
         when(orderMapper.toInfoDto(any())).thenReturn(new OrderInfoDTO());
 
-        ResponseEntity<?> response = orderController.getAllOrders(userPrincipal);
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, null, null, null, null, "full", userPrincipal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(orderRepository).findPage(any(), eq(OrderController.LEGACY_LIST_LIMIT));
+    }
+
+    @Test
+    void testGetAllOrders_userCannotFilterByOtherUser() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+
+        ResponseEntity<?> response = orderController.getAllOrders(
+                adminUser.getId(), null, null, null, null, null, null, "full", userPrincipal);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testGetAllOrders_cursorPage() {
+        Order first = new Order();
+        first.setId(9L);
+        first.setCreatedAt(LocalDateTime.of(2025, 3, 2, 12, 0));
+        Order second = new Order();
+        second.setId(8L);
+        second.setCreatedAt(LocalDateTime.of(2025, 3, 1, 12, 0));
+
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(adminUser));
+        // Запрашивается limit + 1 запись, чтобы узнать о наличии следующей страницы
+        when(orderRepository.findPage(any(), eq(2))).thenReturn(List.of(first, second));
+        when(orderMapper.toInfoDto(first)).thenReturn(new OrderInfoDTO());
+
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, 100.0, null, null, 1, "full", adminPrincipal);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(orderRepository).findByUserId(regularUser.getId());
+        CursorPageDTO<?> page = (CursorPageDTO<?>) response.getBody();
+        assertEquals(1, page.getItems().size());
+        assertArrayEquals(new String[]{"2025-03-02T12:00", "9"}, CursorCodec.decode(page.getNext()));
+    }
+
+    @Test
+    void testGetAllOrders_compactShape() {
+        Order order = new Order();
+        order.setId(9L);
+        order.setUser(regularUser);
+        List<Order> orders = List.of(order);
+        CompactOrderPageDTO compactPage = new CompactOrderPageDTO(List.of(), Map.of(), null);
+
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(adminUser));
+        when(orderRepository.findPage(any(), eq(OrderController.LEGACY_LIST_LIMIT))).thenReturn(orders);
+        when(orderMapper.toCompactPage(orders, null)).thenReturn(compactPage);
+
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, null, null, null, null, "compact", adminPrincipal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(compactPage, response.getBody());
+        verify(orderMapper, never()).toInfoDto(any());
+    }
+
+    @Test
+    void testGetAllOrders_invalidShape() {
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(adminUser));
+
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, null, null, null, null, "tiny", adminPrincipal);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testGetAllOrders_invalidRange() {
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(adminUser));
+
+        ResponseEntity<?> response = orderController.getAllOrders(
+                null, null, null, 500.0, 100.0, null, null, "full", adminPrincipal);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testGetMyOrders_invalidCursor() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+
+        ResponseEntity<?> response = orderController.getMyOrders(
+                null, null, null, null, CursorCodec.encode("вчера", 1L), 10, "full", userPrincipal);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(orderRepository);
     }
 
     // ----------- getOrderById -----------
@@ -139,7 +268,7 @@ public class OrderControllerTest {
 
         List<Book> books = List.of(book_first, book_second);
         Order savedOrder = new Order();
-        savedOrder.setBooks(books);
+        savedOrder.setBooks(new LinkedHashSet<>(books));
         savedOrder.setUser(regularUser);
         savedOrder.setTotalPrice(300);
 
@@ -148,20 +277,196 @@ public class OrderControllerTest {
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
         when(orderMapper.toInfoDto(any(Order.class))).thenReturn(new OrderInfoDTO());
 
-        ResponseEntity<?> response = orderController.createOrder(request, userPrincipal);
+        ResponseEntity<?> response = orderController.createOrder(request, null, userPrincipal);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
     }
 
+    @Test
+    void testCreateOrder_asyncReturnsTicket() {
+        OrderRequestDTO request = new OrderRequestDTO(List.of(1L, 2L));
+        OrderTicketDTO ticket = new OrderTicketDTO("t-1", OrderTicketDTO.Status.QUEUED, null, null);
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(orderPlacementQueue.isEnabled()).thenReturn(true);
+        when(orderPlacementQueue.submit(regularUser.getId(), request.getBookIds())).thenReturn(ticket);
+
+        ResponseEntity<?> response = orderController.createOrder(request, null, userPrincipal);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertSame(ticket, response.getBody());
+        assertEquals("/api/orders/tickets/t-1/", response.getHeaders().getLocation().toString());
+        verifyNoInteractions(bookRepository, orderRepository);
+    }
+
+    @Test
+    void testCreateOrder_asyncQueueFull() {
+        OrderRequestDTO request = new OrderRequestDTO(List.of(1L));
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(orderPlacementQueue.isEnabled()).thenReturn(true);
+        when(orderPlacementQueue.submit(any(), any())).thenThrow(new RejectedExecutionException());
+
+        ResponseEntity<?> response = orderController.createOrder(request, null, userPrincipal);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testGetOrderTicket_notVisibleToOtherUser() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(orderPlacementQueue.status("t-1", regularUser.getId(), false)).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = orderController.getOrderTicket("t-1", userPrincipal);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
     @Test
     void testCreateOrder_booksNotFound() {
         OrderRequestDTO request = new OrderRequestDTO(List.of(1L, 2L));
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
         when(bookRepository.findAllById(request.getBookIds())).thenReturn(Collections.emptyList());
 
-        ResponseEntity<?> response = orderController.createOrder(request, userPrincipal);
+        ResponseEntity<?> response = orderController.createOrder(request, null, userPrincipal);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testCreateOrder_withIdempotencyKeyGoesThroughStore() {
+        OrderRequestDTO request = new OrderRequestDTO(List.of(1L));
+        ResponseEntity<?> replayed = ResponseEntity.status(HttpStatus.CREATED).body("{}");
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(idempotencyStore.execute(eq(regularUser.getId()), eq("key-1"), eq("POST /api/orders/"), eq(request), any()))
+                .thenAnswer(invocation -> replayed);
+
+        ResponseEntity<?> response = orderController.createOrder(request, "key-1", userPrincipal);
+
+        assertSame(replayed, response);
+        verifyNoInteractions(bookRepository, orderRepository);
+    }
+
+    @Test
+    void testCreateOrder_tooLongIdempotencyKey() {
+        OrderRequestDTO request = new OrderRequestDTO(List.of(1L));
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+
+        ResponseEntity<?> response = orderController.createOrder(request, "k".repeat(256), userPrincipal);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(idempotencyStore, bookRepository, orderRepository);
+    }
+
+    @Test
+    void testCreateOrder_sameKeyOnTwoInstancesQueuesOnce() throws Exception {
+        OrderRequestDTO request = new OrderRequestDTO(List.of(1L));
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(orderPlacementQueue.isEnabled()).thenReturn(true);
+        when(orderPlacementQueue.submit(regularUser.getId(), request.getBookIds()))
+                .thenReturn(new OrderTicketDTO("t-1", OrderTicketDTO.Status.QUEUED, null, null));
+
+        // Два экземпляра приложения с общей таблицей idempotency_keys; оба проверяют ключ до того,
+        // как кто-либо его займёт
+        IdempotencyRecordRepository records = inMemoryIdempotencyRecords(new CyclicBarrier(2));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        List<OrderController> instances = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            instances.add(new OrderController(orderRepository, userRepository, bookRepository, orderMapper,
+                    new UserStateCache(userRepository, 100, Duration.ofMinutes(5)), orderPlacementQueue,
+                    new IdempotencyStore(records, new TransactionTemplate(transactionManager), new ObjectMapper(),
+                            100, Duration.ofHours(24), Duration.ofSeconds(5))));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+            for (OrderController instance : instances) {
+                responses.add(executor.submit(() -> instance.createOrder(request, "key-1", userPrincipal)));
+            }
+            for (Future<ResponseEntity<?>> response : responses) {
+                HttpStatusCode status = response.get(5, TimeUnit.SECONDS).getStatusCode();
+                // Второй получает ответ первого или узнаёт, что запрос ещё выполняется
+                assertTrue(status.equals(HttpStatus.ACCEPTED) || status.equals(HttpStatus.CONFLICT));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(orderPlacementQueue, times(1)).submit(regularUser.getId(), request.getBookIds());
+    }
+
+    // Таблица idempotency_keys в памяти: уникальность (user_id, idempotency_key) как в БД.
+    // Первые два поиска ждут друг друга на barrier
+    private static IdempotencyRecordRepository inMemoryIdempotencyRecords(CyclicBarrier barrier) {
+        Map<String, IdempotencyRecord> rows = new ConcurrentHashMap<>();
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicLong ids = new AtomicLong();
+        IdempotencyRecordRepository records = mock(IdempotencyRecordRepository.class);
+        when(records.findByUserIdAndIdempotencyKey(any(), any())).thenAnswer(invocation -> {
+            if (lookups.incrementAndGet() <= barrier.getParties()) {
+                barrier.await(5, TimeUnit.SECONDS);
+            }
+            return Optional.ofNullable(rows.get(invocation.getArgument(0) + ":" + invocation.getArgument(1)));
+        });
+        when(records.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            String key = record.getUserId() + ":" + record.getIdempotencyKey();
+            if (record.getId() == null) {
+                if (rows.putIfAbsent(key, record) != null) {
+                    throw new DataIntegrityViolationException("uk_idempotency_keys_user_key");
+                }
+                record.setId(ids.incrementAndGet());
+            } else {
+                rows.put(key, record);
+            }
+            return record;
+        });
+        doAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            rows.remove(record.getUserId() + ":" + record.getIdempotencyKey(), record);
+            return null;
+        }).when(records).delete(any(IdempotencyRecord.class));
+        return records;
+    }
+
+    // ----------- updateOrder -----------
+    @Test
+    void testUpdateOrder_changesBooksInPlace() {
+        Book first = new Book();
+        first.setId(1L);
+        first.setPrice(100);
+        Book second = new Book();
+        second.setId(2L);
+        second.setPrice(200);
+        Book third = new Book();
+        third.setId(3L);
+        third.setPrice(300);
+
+        Order order = new Order();
+        order.setUser(regularUser);
+        order.setBooks(new LinkedHashSet<>(List.of(first, second)));
+        Set<Book> originalBooks = order.getBooks();
+
+        // Книга 2 пришла другим экземпляром с тем же id
+        Book secondAgain = new Book();
+        secondAgain.setId(2L);
+        secondAgain.setPrice(200);
+        OrderRequestDTO request = new OrderRequestDTO(List.of(2L, 3L));
+
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        when(orderRepository.findById(5L)).thenReturn(Optional.of(order));
+        when(userRepository.findById(regularUser.getId())).thenReturn(Optional.of(regularUser));
+        when(bookRepository.findAllById(request.getBookIds())).thenReturn(List.of(secondAgain, third));
+        when(orderMapper.toDto(order)).thenReturn(new OrderDTO());
+
+        ResponseEntity<?> response = orderController.updateOrder(5L, request, null, userPrincipal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        // То же множество: Hibernate удалит строку книги 1 и вставит строку книги 3, не трогая книгу 2
+        assertSame(originalBooks, order.getBooks());
+        assertEquals(List.of(second, third), List.copyOf(order.getBooks()));
+        assertEquals(500, order.getTotalPrice());
     }
 
     // ----------- deleteOrder -----------
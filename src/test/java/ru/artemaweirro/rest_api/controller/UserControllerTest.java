@@ -7,19 +7,24 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import ru.artemaweirro.rest_api.controllers.UserController;
 import ru.artemaweirro.rest_api.dto.UserInfoDTO;
 import ru.artemaweirro.rest_api.mappers.UserMapper;
 import ru.artemaweirro.rest_api.models.Role;
 import ru.artemaweirro.rest_api.models.User;
 import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthenticatedUser;
+import ru.artemaweirro.rest_api.service.UserStateCache;
 
 import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,7 +43,8 @@ class UserControllerTest {
 
     @BeforeEach
     void setUp() {
-        userController = new UserController(userRepository, userMapper);
+        userController = new UserController(userRepository, userMapper,
+                new UserStateCache(userRepository, 100, Duration.ofMinutes(5)));
 
         regularUser.setId(1L);
         regularUser.setUsername("user");
@@ -73,15 +79,27 @@ class UserControllerTest {
         user.setUsername("user1");
         user.setRole(Role.USER);
 
-        UserInfoDTO dto = new UserInfoDTO();
-
         when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
-        when(userMapper.toDto(user)).thenReturn(dto);
 
         ResponseEntity<?> response = userController.getCurrentUserInfo(principal);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(dto, response.getBody());
+        UserInfoDTO dto = (UserInfoDTO) response.getBody();
+        assertEquals(1L, dto.getId());
+        assertEquals("user1", dto.getUsername());
+        assertEquals(Role.USER, dto.getRole());
+    }
+
+    @Test
+    void testGetCurrentUserInfo_fromAuthenticationWithoutDatabase() {
+        AuthenticatedUser user = new AuthenticatedUser(1L, "user1", Role.MODERATOR);
+        Principal principal = new UsernamePasswordAuthenticationToken(user, null, user.authorities());
+
+        ResponseEntity<?> response = userController.getCurrentUserInfo(principal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Role.MODERATOR, ((UserInfoDTO) response.getBody()).getRole());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -150,6 +168,24 @@ class UserControllerTest {
         verify(userRepository).save(user);
     }
 
+    @Test
+    void testUpdateUser_roleChangeVisibleOnNextRequest() {
+        Principal principal = () -> "user";
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        assertEquals(Role.USER, ((UserInfoDTO) userController.getCurrentUserInfo(principal).getBody()).getRole());
+
+        // Администратор повышает пользователя до модератора
+        when(userRepository.findById(1L)).thenReturn(Optional.of(regularUser));
+        doAnswer(invocation -> {
+            regularUser.setRole(Role.MODERATOR);
+            return null;
+        }).when(userMapper).updateEntityFromDTO(any(), eq(regularUser));
+        userController.updateUser(1L, new UserInfoDTO(1L, "user", Role.MODERATOR));
+
+        assertEquals(Role.MODERATOR, ((UserInfoDTO) userController.getCurrentUserInfo(principal).getBody()).getRole());
+        verify(userRepository, times(2)).findByUsername("user");
+    }
+
     @Test
     void testUpdateUser_notFound() {
         UserInfoDTO updatedDto = new UserInfoDTO();
@@ -175,6 +211,19 @@ class UserControllerTest {
         verify(userRepository).delete(user);
     }
 
+    @Test
+    void testDeleteUser_tokensStopWorking() {
+        Principal principal = () -> "user";
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(regularUser));
+        assertEquals(HttpStatus.OK, userController.getCurrentUserInfo(principal).getStatusCode());
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(regularUser));
+        userController.deleteUser(1L);
+        when(userRepository.findByUsername("user")).thenReturn(Optional.empty());
+
+        assertEquals(HttpStatus.UNAUTHORIZED, userController.getCurrentUserInfo(principal).getStatusCode());
+    }
+
     @Test
     void testDeleteUser_notFound() {
         when(userRepository.findById(404L)).thenReturn(Optional.empty());
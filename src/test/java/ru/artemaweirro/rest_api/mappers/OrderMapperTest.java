@@ -0,0 +1,52 @@
+package ru.artemaweirro.rest_api.mappers;
+
+import org.junit.jupiter.api.Test;
+import ru.artemaweirro.rest_api.dto.CompactOrderPageDTO;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.models.User;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderMapperTest {
+
+    private final OrderMapper orderMapper = new OrderMapper();
+
+    private static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Книга " + id);
+        return book;
+    }
+
+    private static Order order(long id, User user, Book... books) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUser(user);
+        order.setBooks(new LinkedHashSet<>(List.of(books)));
+        return order;
+    }
+
+    @Test
+    void testCompactPageListsEachBookOnce() {
+        User user = new User();
+        user.setUsername("reader");
+        Book popular = book(1);
+        Book other = book(2);
+        Book rare = book(3);
+
+        CompactOrderPageDTO page = orderMapper.toCompactPage(
+                List.of(order(10, user, popular, other), order(11, user, popular, rare)), "cursor");
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(List.of(1L, 2L), page.getItems().get(0).getBookIds());
+        assertEquals(List.of(1L, 3L), page.getItems().get(1).getBookIds());
+        assertEquals("reader", page.getItems().get(1).getUser());
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(page.getBooks().keySet()));
+        assertSame(popular, page.getBooks().get(1L));
+        assertEquals("cursor", page.getNext());
+    }
+}
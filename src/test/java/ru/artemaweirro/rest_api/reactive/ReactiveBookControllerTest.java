@@ -0,0 +1,99 @@
+package ru.artemaweirro.rest_api.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveBookControllerTest {
+
+    @Mock
+    private ReactiveBookRepository reactiveBookRepository;
+
+    private ReactiveBookController reactiveBookController;
+
+    private final BookRow first = new BookRow(1L, "Война и мир", "Толстой", 500, null);
+    private final BookRow second = new BookRow(2L, "Мир полудня", "Стругацкие", 300, null);
+
+    @BeforeEach
+    void setUp() {
+        reactiveBookController = new ReactiveBookController(reactiveBookRepository);
+    }
+
+    @Test
+    void testGetBooksStreamsPageAfterCursor() {
+        when(reactiveBookRepository.findPageAfterId(0L, 2)).thenReturn(Flux.just(first, second));
+
+        StepVerifier.create(reactiveBookController.getBooks(0L, 2))
+                .expectNext(first, second)
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetBooksRespectsDownstreamDemand() {
+        when(reactiveBookRepository.findPageAfterId(0L, 100)).thenReturn(Flux.just(first, second));
+
+        // Следующая книга не выдаётся, пока подписчик её не запросил
+        StepVerifier.create(reactiveBookController.getBooks(0L, 100), 1)
+                .expectNext(first)
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(1)
+                .expectNext(second)
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetBooksRejectsInvalidLimit() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> reactiveBookController.getBooks(0L, ReactiveBookController.MAX_LIMIT + 1));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(reactiveBookRepository);
+    }
+
+    @Test
+    void testGetBookByIdFound() {
+        when(reactiveBookRepository.findById(1L)).thenReturn(Mono.just(first));
+
+        StepVerifier.create(reactiveBookController.getBookById(1L))
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    assertEquals(first, response.getBody());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetBookByIdNotFound() {
+        when(reactiveBookRepository.findById(42L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveBookController.getBookById(42L))
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+                    assertEquals(Map.of("error", "Книга не найдена"), response.getBody());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetBooksByTitleEscapesWildcards() {
+        when(reactiveBookRepository.findByTitleLike("%100\\%\\_мир\\\\%", 100)).thenReturn(Flux.just(second));
+
+        StepVerifier.create(reactiveBookController.getBooksByTitle("100%_мир\\", 100))
+                .expectNext(second)
+                .verifyComplete();
+    }
+}
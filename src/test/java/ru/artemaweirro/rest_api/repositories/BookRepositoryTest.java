@@ -0,0 +1,91 @@
+package ru.artemaweirro.rest_api.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.artemaweirro.rest_api.models.Book;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Кэш второго уровня: поиск по названию и книги повторно читаются без обращения к БД.
+// Данные должны быть зафиксированы, поэтому тест работает без общей транзакции.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Миграции Flyway написаны для PostgreSQL, поэтому схема H2 создаётся по сущностям
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookRepositoryTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(book("Война и мир"));
+        bookRepository.save(book("Мир полудня"));
+        bookRepository.save(book("Анна Каренина"));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Автор");
+        book.setPrice(100);
+        return book;
+    }
+
+    @Test
+    void testRepeatedTitleSearchIsServedFromCache() {
+        assertEquals(2, bookRepository.findByTitleContainingIgnoreCase("мир").size());
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Book> again = bookRepository.findByTitleContainingIgnoreCase("мир");
+
+        assertEquals(2, again.size());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void testTitleSearchSeesBooksSavedAfterCaching() {
+        assertEquals(2, bookRepository.findByTitleContainingIgnoreCase("мир").size());
+
+        bookRepository.save(book("Мир как воля и представление"));
+
+        assertEquals(3, bookRepository.findByTitleContainingIgnoreCase("мир").size());
+    }
+
+    @Test
+    void testBookByIdIsServedFromCache() {
+        Long id = bookRepository.findByTitleContainingIgnoreCase("Анна").get(0).getId();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals("Анна Каренина", bookRepository.findById(id).orElseThrow().getTitle());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,174 @@
+package ru.artemaweirro.rest_api.repositories;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
+import ru.artemaweirro.rest_api.dto.OrderInfoDTO;
+import ru.artemaweirro.rest_api.mappers.OrderMapper;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Проверка, что список заказов загружается фиксированным числом запросов, а не 1 + 2N
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Миграции Flyway написаны для PostgreSQL, поэтому схема H2 создаётся по сущностям
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class OrderRepositoryTest {
+
+    private static final int USERS = 3;
+    private static final int ORDERS_PER_USER = 4;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final OrderMapper orderMapper = new OrderMapper();
+
+    private Statistics statistics;
+    private Long firstUserId;
+
+    @BeforeEach
+    void setUp() {
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUsername("user" + u);
+            user.setPassword("password");
+            user.setRole(Role.USER);
+            entityManager.persist(user);
+            if (firstUserId == null) {
+                firstUserId = user.getId();
+            }
+
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                Book first = book("Книга " + u + "-" + o + "-1");
+                Book second = book("Книга " + u + "-" + o + "-2");
+
+                Order order = new Order();
+                order.setUser(user);
+                order.setBooks(new LinkedHashSet<>(List.of(first, second)));
+                order.setTotalPrice(first.getPrice() + second.getPrice());
+                entityManager.persist(order);
+            }
+        }
+        entityManager.flush();
+        // Дальше всё читается из БД, а не из контекста персистентности
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Автор");
+        book.setPrice(100);
+        return entityManager.persist(book);
+    }
+
+    // Маппинг в OrderInfoDTO плюс обход книг, как при сериализации ответа
+    private void mapAll(List<Order> orders) {
+        for (Order order : orders) {
+            OrderInfoDTO dto = orderMapper.toInfoDto(order);
+            assertEquals(2, dto.getBooks().size());
+        }
+    }
+
+    @Test
+    void testFindAllLoadsUsersAndBooksInConstantStatements() {
+        List<Order> orders = orderRepository.findAll();
+        mapAll(orders);
+
+        assertEquals(USERS * ORDERS_PER_USER, orders.size());
+        // Заказы с пользователями + одна пакетная выборка книг
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindByUserIdLoadsUsersAndBooksInConstantStatements() {
+        List<Order> orders = orderRepository.findByUserId(firstUserId);
+        mapAll(orders);
+
+        assertEquals(ORDERS_PER_USER, orders.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindPageWalksUserOrdersNewestFirst() {
+        Specification<Order> filter = OrderSpecifications.filter(firstUserId, null, null, null, null);
+
+        List<Long> seen = new ArrayList<>();
+        List<Order> page = orderRepository.findPage(filter, 3);
+        mapAll(page);
+        // Страница заказов: один запрос за заказами с пользователями и один за книгами
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        while (!page.isEmpty()) {
+            page.forEach(order -> seen.add(order.getId()));
+            Order last = page.get(page.size() - 1);
+            page = orderRepository.findPage(
+                    filter.and(OrderSpecifications.before(last.getCreatedAt(), last.getId())), 3);
+        }
+
+        assertEquals(ORDERS_PER_USER, seen.size());
+        assertEquals(ORDERS_PER_USER, new HashSet<>(seen).size());
+    }
+
+    @Test
+    void testReplaceBooksWritesOnlyChangedRows() {
+        User user = entityManager.find(User.class, firstUserId);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            books.add(book("Большой заказ " + i));
+        }
+        Order order = new Order();
+        order.setUser(user);
+        order.setBooks(new LinkedHashSet<>(books));
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Две книги убираются, три добавляются
+        List<Book> changed = new ArrayList<>();
+        for (int i = 2; i < 20; i++) {
+            changed.add(entityManager.find(Book.class, books.get(i).getId()));
+        }
+        for (int i = 0; i < 3; i++) {
+            changed.add(book("Новая книга " + i));
+        }
+        entityManager.flush();
+        Order loaded = entityManager.find(Order.class, order.getId());
+        assertEquals(20, loaded.getBooks().size());
+        statistics.clear();
+
+        loaded.replaceBooks(changed);
+        entityManager.flush();
+
+        // Пакет удалений и пакет вставок; строки оставшихся книг не переписываются
+        assertEquals(0, statistics.getCollectionRecreateCount());
+        assertEquals(1, statistics.getCollectionUpdateCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        entityManager.clear();
+        assertEquals(21, entityManager.find(Order.class, order.getId()).getBooks().size());
+    }
+}
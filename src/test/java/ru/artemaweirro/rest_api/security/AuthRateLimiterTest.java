@@ -0,0 +1,48 @@
+package ru.artemaweirro.rest_api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthRateLimiterTest {
+
+    // 3 запроса в минуту с IP и 2 запроса в минуту на имя пользователя
+    private final AuthRateLimiter authRateLimiter =
+            new AuthRateLimiter(3, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 1000);
+
+    @Test
+    void testBurstUpToCapacityThenReject() {
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, authRateLimiter.acquireForIp("10.0.0.1", now));
+        }
+
+        long wait = authRateLimiter.acquireForIp("10.0.0.1", now);
+        // Следующий токен появится через минуту / 3
+        assertEquals(TimeUnit.SECONDS.toNanos(20), wait);
+
+        // Другой IP ограничивается независимо
+        assertEquals(0, authRateLimiter.acquireForIp("10.0.0.2", now));
+    }
+
+    @Test
+    void testTokensRefillOverTime() {
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            authRateLimiter.acquireForIp("10.0.0.1", now);
+        }
+        assertTrue(authRateLimiter.acquireForIp("10.0.0.1", now + TimeUnit.SECONDS.toNanos(19)) > 0);
+        assertEquals(0, authRateLimiter.acquireForIp("10.0.0.1", now + TimeUnit.SECONDS.toNanos(20)));
+    }
+
+    @Test
+    void testUsernameIsCaseInsensitive() {
+        long now = 0;
+        assertEquals(0, authRateLimiter.acquireForUsername("Admin", now));
+        assertEquals(0, authRateLimiter.acquireForUsername("admin ", now));
+        assertTrue(authRateLimiter.acquireForUsername("ADMIN", now) > 0);
+    }
+}
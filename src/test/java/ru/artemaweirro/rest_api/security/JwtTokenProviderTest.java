@@ -0,0 +1,64 @@
+package ru.artemaweirro.rest_api.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "3f65ac2fbd9e4a2abfb90278d17a99e1a5b764ed94dddb43b6e6b7a598cbfa13";
+
+    private JwtTokenProvider provider(String secret, long validity) {
+        return new JwtTokenProvider(secret, validity, 100);
+    }
+
+    @Test
+    void testVerifyReturnsClaims() {
+        JwtTokenProvider jwtTokenProvider = provider(SECRET, 60_000);
+        String token = jwtTokenProvider.createToken("user", "USER");
+
+        Claims claims = jwtTokenProvider.verify(token);
+
+        assertNotNull(claims);
+        assertEquals("user", claims.getSubject());
+        assertEquals("USER", claims.get("role"));
+    }
+
+    @Test
+    void testRepeatedVerifyIsServedFromCache() {
+        JwtTokenProvider jwtTokenProvider = provider(SECRET, 60_000);
+        String token = jwtTokenProvider.createToken("user", "USER");
+
+        // Повторная проверка не разбирает токен заново и возвращает те же claims
+        assertSame(jwtTokenProvider.verify(token), jwtTokenProvider.verify(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        JwtTokenProvider jwtTokenProvider = provider(SECRET, 60_000);
+        String token = jwtTokenProvider.createToken("user", "USER");
+        jwtTokenProvider.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(jwtTokenProvider.verify(tampered));
+        assertNull(jwtTokenProvider.verify(""));
+    }
+
+    @Test
+    void testTokenSignedWithOtherSecretIsRejected() {
+        String token = provider("another-secret-another-secret-another-secret", 60_000)
+                .createToken("admin", "ADMIN");
+
+        assertNull(provider(SECRET, 60_000).verify(token));
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        JwtTokenProvider jwtTokenProvider = provider(SECRET, -1_000);
+        String token = jwtTokenProvider.createToken("user", "USER");
+
+        assertNull(jwtTokenProvider.verify(token));
+    }
+}
@@ -0,0 +1,140 @@
+package ru.artemaweirro.rest_api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final RateLimitFilter rateLimitFilter = new RateLimitFilter(
+            new AuthRateLimiter(100, Duration.ofMinutes(1), 1, Duration.ofMinutes(1), 1000),
+            new ObjectMapper());
+
+    private MockHttpServletRequest login(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login/");
+        request.setContentType("application/json");
+        request.setContent(("{\"username\": \"" + username + "\", \"password\": \"secret\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @Test
+    void testBodyIsReplayedToController() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        rateLimitFilter.doFilter(login("user"), new MockHttpServletResponse(), chain);
+
+        String body = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"username\": \"user\""));
+    }
+
+    @Test
+    void testRejectsRepeatedUsernameWithRetryAfter() throws Exception {
+        rateLimitFilter.doFilter(login("user"), new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        rateLimitFilter.doFilter(login("user"), response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("60", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void testOtherEndpointsAreNotLimited() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            rateLimitFilter.doFilter(new MockHttpServletRequest("GET", "/api/books/"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    void testReplayedBodyIsFinishedOnlyAfterPrefixIsRead() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        rateLimitFilter.doFilter(login("user"), new MockHttpServletResponse(), chain);
+
+        ServletInputStream in = chain.getRequest().getInputStream();
+        assertFalse(in.isFinished());
+        assertTrue(in.isReady());
+
+        in.readAllBytes();
+        assertTrue(in.isFinished());
+    }
+
+    @Test
+    void testReadListenerReceivesPrereadBody() throws IOException {
+        // Исходный поток уже прочитан до конца; контейнер сразу сообщает onAllDataRead
+        FinishedInputStream source = new FinishedInputStream();
+        byte[] prefix = "{\"username\": \"user\"}".getBytes(StandardCharsets.UTF_8);
+        RateLimitFilter.PrereadInputStream in = new RateLimitFilter.PrereadInputStream(prefix, source);
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        boolean[] allDataRead = new boolean[1];
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[8];
+                while (in.isReady() && !in.isFinished()) {
+                    int count = in.read(buffer);
+                    if (count > 0) {
+                        received.write(buffer, 0, count);
+                    }
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+        });
+        source.listener.onAllDataRead();
+
+        assertArrayEquals(prefix, received.toByteArray());
+        assertTrue(allDataRead[0]);
+        assertTrue(in.isFinished());
+    }
+
+    // Исходный поток запроса, тело которого уже прочитано целиком
+    private static final class FinishedInputStream extends ServletInputStream {
+        private ReadListener listener;
+
+        @Override
+        public boolean isFinished() {
+            return true;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.artemaweirro.rest_api.dto.BookDTO;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheTest {
+
+    private BookCache bookCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        bookCache = new BookCache(100, Duration.ofMinutes(10));
+    }
+
+    private Optional<BookDTO> load(Long id, String title) {
+        loads.incrementAndGet();
+        return Optional.of(new BookDTO(id, title, "Автор", 100.0, "Описание"));
+    }
+
+    @Test
+    void testLoadedBookIsCached() {
+        bookCache.get(1L, id -> load(id, "Война и мир"));
+        bookCache.get(1L, id -> load(id, "Война и мир"));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidateDuringLoadDoesNotKeepStaleBook() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<BookDTO>> inFlight = executor.submit(() -> bookCache.get(1L, id -> {
+                loading.countDown();
+                try {
+                    assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return load(id, "Старое название");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            bookCache.invalidate(1L);
+            invalidated.countDown();
+            assertEquals("Старое название", inFlight.get(5, TimeUnit.SECONDS).orElseThrow().getTitle());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Новое название", bookCache.get(1L, id -> load(id, "Новое название")).orElseThrow().getTitle());
+        assertEquals(2, loads.get());
+    }
+}
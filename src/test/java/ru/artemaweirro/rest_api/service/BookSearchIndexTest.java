@@ -0,0 +1,106 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.artemaweirro.rest_api.dto.BookSummaryDTO;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookSearchIndex = new BookSearchIndex(bookRepository);
+    }
+
+    private Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+
+    private static List<Long> ids(List<BookSummaryDTO> summaries) {
+        return summaries.stream().map(BookSummaryDTO::getId).toList();
+    }
+
+    @Test
+    void testRebuildLoadsAllBooks() {
+        when(bookRepository.findSummaryPageByIdAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(new BookSummaryDTO(1L, "Мастер и Маргарита", "Булгаков", 500.0)));
+
+        assertFalse(bookSearchIndex.isReady());
+        bookSearchIndex.rebuild();
+
+        assertTrue(bookSearchIndex.isReady());
+        assertEquals(1, bookSearchIndex.size());
+        assertEquals(List.of(1L), ids(bookSearchIndex.searchByTitle("маргар", 10)));
+    }
+
+    @Test
+    void testSearchIsCaseInsensitiveSubstring() {
+        bookSearchIndex.index(book(1L, "Война и мир", "Толстой"));
+        bookSearchIndex.index(book(2L, "Мир полудня", "Стругацкие"));
+        bookSearchIndex.index(book(3L, "Анна Каренина", "Толстой"));
+
+        // Название, начинающееся с запроса, выше названия, содержащего его
+        assertEquals(List.of(2L, 1L), ids(bookSearchIndex.searchByTitle("МИР", 10)));
+        // Короткий запрос (меньше триграммы) тоже находит совпадения
+        assertEquals(List.of(3L), ids(bookSearchIndex.searchByTitle("нн", 10)));
+        assertEquals(List.of(), ids(bookSearchIndex.searchByTitle("толстой", 10)));
+    }
+
+    @Test
+    void testSearchByAuthorRanksTitleMatchesFirst() {
+        bookSearchIndex.index(book(1L, "Анна Каренина", "Толстой"));
+        bookSearchIndex.index(book(2L, "Толстой и Достоевский", "Мережковский"));
+
+        assertEquals(List.of(2L, 1L), ids(bookSearchIndex.searchByTitleOrAuthor("толстой", 10)));
+        assertEquals(List.of(2L), ids(bookSearchIndex.searchByTitleOrAuthor("толстой", 1)));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        bookSearchIndex.index(book(1L, "Старое название", "Автор"));
+        bookSearchIndex.index(book(1L, "Новое название", "Автор"));
+
+        assertEquals(List.of(), ids(bookSearchIndex.searchByTitle("старое", 10)));
+        assertEquals(List.of(1L), ids(bookSearchIndex.searchByTitle("новое", 10)));
+
+        bookSearchIndex.remove(1L);
+
+        assertEquals(List.of(), ids(bookSearchIndex.searchByTitle("новое", 10)));
+        assertEquals(0, bookSearchIndex.size());
+    }
+
+    @Test
+    void testSearchReturnsSummaries() {
+        Book book = book(1L, "Пикник на обочине", "Стругацкие");
+        book.setPrice(350.0);
+        book.setDescription("Длинное описание");
+        bookSearchIndex.index(book);
+
+        BookSummaryDTO summary = bookSearchIndex.searchByTitle("пикник", 10).get(0);
+        assertEquals("Пикник на обочине", summary.getTitle());
+        assertEquals("Стругацкие", summary.getAuthor());
+        assertEquals(350.0, summary.getPrice());
+    }
+}
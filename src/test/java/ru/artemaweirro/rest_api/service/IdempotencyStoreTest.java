@@ -0,0 +1,194 @@
+package ru.artemaweirro.rest_api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artemaweirro.rest_api.dto.OrderRequestDTO;
+import ru.artemaweirro.rest_api.models.IdempotencyRecord;
+import ru.artemaweirro.rest_api.repositories.IdempotencyRecordRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final String SCOPE = "POST /api/orders/";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyStore idempotencyStore;
+
+    private final OrderRequestDTO request = new OrderRequestDTO(List.of(1L, 2L));
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyStore = new IdempotencyStore(idempotencyRecordRepository,
+                new TransactionTemplate(transactionManager), new ObjectMapper(),
+                100, Duration.ofHours(24), Duration.ofSeconds(5));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    private Supplier<ResponseEntity<?>> respond(HttpStatus status) {
+        return () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(status).body(Map.of("id", 10));
+        };
+    }
+
+    @Test
+    void testRepeatIsReplayedWithoutExecuting() {
+        ResponseEntity<?> first = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+        ResponseEntity<?> repeat = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CREATED, repeat.getStatusCode());
+        assertEquals("{\"id\":10}", repeat.getBody());
+        assertEquals("true", repeat.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        // Ключ занимается до выполнения, ответ записывается в ту же запись после него
+        verify(idempotencyRecordRepository, times(2)).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void testSameKeyWithOtherRequestIsRejected() {
+        idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        ResponseEntity<?> other = idempotencyStore.execute(7L, "key", SCOPE, new OrderRequestDTO(List.of(3L)),
+                respond(HttpStatus.CREATED));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testKeysAreSeparatedByUser() {
+        idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+        idempotencyStore.execute(8L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testErrorResponsesAreNotStored() {
+        idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.SERVICE_UNAVAILABLE));
+        idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.BAD_REQUEST));
+        ResponseEntity<?> retry = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(3, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        // Ключ, занятый неудачными попытками, освобождается
+        verify(idempotencyRecordRepository, times(2)).delete(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void testKeyClaimedByOtherInstanceIsInProgress() {
+        idempotencyStore.execute(9L, "probe", SCOPE, request, respond(HttpStatus.CREATED));
+        IdempotencyRecord claimed = captureSavedRecord();
+        claimed.setStatus(0);
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(7L, "key")).thenReturn(Optional.of(claimed));
+
+        ResponseEntity<?> response = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testStoredResponseIsReplayedFromDatabase() {
+        // Ответ сохранён в БД, например до перезапуска приложения
+        idempotencyStore.execute(9L, "probe", SCOPE, request, respond(HttpStatus.CREATED));
+        IdempotencyRecord saved = captureSavedRecord();
+        saved.setUserId(7L);
+        saved.setIdempotencyKey("key");
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(7L, "key")).thenReturn(Optional.of(saved));
+
+        ResponseEntity<?> response = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("{\"id\":10}", response.getBody());
+    }
+
+    @Test
+    void testUniqueViolationReplaysOtherInstanceResponse() {
+        idempotencyStore.execute(9L, "probe", SCOPE, request, respond(HttpStatus.CREATED));
+        IdempotencyRecord other = captureSavedRecord();
+        // Первый поиск ничего не находит, ключ занимает другой экземпляр раньше нас
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(7L, "key"))
+                .thenReturn(Optional.empty(), Optional.of(other));
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_idempotency_keys_user_key"));
+
+        ResponseEntity<?> response = idempotencyStore.execute(7L, "key", SCOPE, request, respond(HttpStatus.CREATED));
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("{\"id\":10}", response.getBody());
+        // Операция не выполнялась: ключ не удалось занять
+        assertEquals(1, executions.get());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testConcurrentDuplicatesExecuteOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<?>> slow = () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", 10));
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<?>> first = executor.submit(() -> idempotencyStore.execute(7L, "key", SCOPE, request, slow));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<?>> duplicate = executor.submit(() -> idempotencyStore.execute(7L, "key", SCOPE, request, slow));
+            release.countDown();
+
+            assertEquals(HttpStatus.CREATED, first.get(5, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(HttpStatus.CREATED, duplicate.get(5, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private IdempotencyRecord captureSavedRecord() {
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository, times(2)).saveAndFlush(captor.capture());
+        IdempotencyRecord record = captor.getValue();
+        assertEquals(201, record.getStatus());
+        assertTrue(record.getCreatedAt().isAfter(LocalDateTime.now().minusMinutes(1)));
+        return record;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artemaweirro.rest_api.dto.OrderTicketDTO;
+import ru.artemaweirro.rest_api.models.Book;
+import ru.artemaweirro.rest_api.models.Order;
+import ru.artemaweirro.rest_api.models.User;
+import ru.artemaweirro.rest_api.repositories.BookRepository;
+import ru.artemaweirro.rest_api.repositories.OrderRepository;
+import ru.artemaweirro.rest_api.repositories.UserRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPlacementQueueTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderPlacementQueue orderPlacementQueue;
+
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        // Поток-писатель не запускается (enabled = false): порции записываются вызовом writeQueued
+        orderPlacementQueue = new OrderPlacementQueue(orderRepository, bookRepository, userRepository,
+                new TransactionTemplate(transactionManager), false, 3, 10, Duration.ZERO, Duration.ofMinutes(5));
+        user.setId(7L);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(userRepository.getReferenceById(7L)).thenReturn(user);
+    }
+
+    private static Book book(long id, double price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setPrice(price);
+        return book;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assignIdsOnSave() {
+        AtomicLong ids = new AtomicLong(100);
+        when(orderRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setId(ids.incrementAndGet()));
+            return orders;
+        });
+    }
+
+    @Test
+    void testQueuedOrdersAreCommittedInOneTransaction() throws Exception {
+        when(bookRepository.findAllById(Set.of(1L, 2L, 3L)))
+                .thenReturn(List.of(book(1, 100), book(2, 200), book(3, 300)));
+        assignIdsOnSave();
+
+        OrderTicketDTO first = orderPlacementQueue.submit(7L, List.of(1L, 2L));
+        OrderTicketDTO second = orderPlacementQueue.submit(7L, List.of(2L, 3L));
+        assertEquals(OrderTicketDTO.Status.QUEUED,
+                orderPlacementQueue.status(first.getTicket(), 7L, false).orElseThrow().getStatus());
+
+        assertEquals(2, orderPlacementQueue.writeQueued(0));
+
+        verify(transactionManager, times(1)).commit(any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<Order>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(orderRepository).saveAll(saved.capture());
+        List<Order> orders = (List<Order>) saved.getValue();
+        assertEquals(300, orders.get(0).getTotalPrice());
+        assertEquals(500, orders.get(1).getTotalPrice());
+
+        OrderTicketDTO persisted = orderPlacementQueue.status(second.getTicket(), 7L, false).orElseThrow();
+        assertEquals(OrderTicketDTO.Status.PERSISTED, persisted.getStatus());
+        assertEquals(102L, persisted.getOrderId());
+    }
+
+    @Test
+    void testOrderWithUnknownBooksFails() throws Exception {
+        when(bookRepository.findAllById(Set.of(42L))).thenReturn(List.of());
+
+        OrderTicketDTO ticket = orderPlacementQueue.submit(7L, List.of(42L));
+        orderPlacementQueue.writeQueued(0);
+
+        OrderTicketDTO state = orderPlacementQueue.status(ticket.getTicket(), 7L, false).orElseThrow();
+        assertEquals(OrderTicketDTO.Status.FAILED, state.getStatus());
+        assertEquals("Книги не найдены", state.getError());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedOrderByOrder() throws Exception {
+        when(bookRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            return StreamSupport.stream(ids.spliterator(), false)
+                    .map(id -> book(id, 100))
+                    .toList();
+        });
+        // Порция целиком и заказ с книгой 2 не сохраняются, заказ с книгой 1 — сохраняется
+        when(orderRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(order -> order.getBooks().stream().anyMatch(b -> b.getId() == 2L))) {
+                throw new IllegalStateException("ошибка БД");
+            }
+            orders.forEach(order -> order.setId(500L));
+            return orders;
+        });
+
+        OrderTicketDTO good = orderPlacementQueue.submit(7L, List.of(1L));
+        OrderTicketDTO bad = orderPlacementQueue.submit(7L, List.of(2L));
+        orderPlacementQueue.writeQueued(0);
+
+        assertEquals(OrderTicketDTO.Status.PERSISTED,
+                orderPlacementQueue.status(good.getTicket(), 7L, false).orElseThrow().getStatus());
+        assertEquals(OrderTicketDTO.Status.FAILED,
+                orderPlacementQueue.status(bad.getTicket(), 7L, false).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        orderPlacementQueue.submit(7L, List.of(1L));
+        orderPlacementQueue.submit(7L, List.of(1L));
+        orderPlacementQueue.submit(7L, List.of(1L));
+
+        assertThrows(RejectedExecutionException.class, () -> orderPlacementQueue.submit(7L, List.of(1L)));
+        assertEquals(3, orderPlacementQueue.queued());
+    }
+
+    @Test
+    void testTicketIsHiddenFromOtherUsers() {
+        OrderTicketDTO ticket = orderPlacementQueue.submit(7L, List.of(1L));
+
+        assertTrue(orderPlacementQueue.status(ticket.getTicket(), 8L, false).isEmpty());
+        assertTrue(orderPlacementQueue.status(ticket.getTicket(), 8L, true).isPresent());
+    }
+
+    @Test
+    void testRejectsAfterShutdown() throws Exception {
+        orderPlacementQueue.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> orderPlacementQueue.submit(7L, List.of(1L)));
+        assertEquals(0, orderPlacementQueue.queued());
+    }
+
+    @Test
+    void testUnwrittenOrdersFailOnShutdown() throws Exception {
+        // Поток-писатель не запущен: заказ остаётся в очереди до остановки
+        OrderTicketDTO ticket = orderPlacementQueue.submit(7L, List.of(1L));
+
+        orderPlacementQueue.shutdown();
+
+        assertEquals(0, orderPlacementQueue.queued());
+        assertEquals(OrderTicketDTO.Status.FAILED,
+                orderPlacementQueue.status(ticket.getTicket(), 7L, false).orElseThrow().getStatus());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testQueuedTicketOutlivesTtl() throws Exception {
+        // Нулевой срок: квитанция с итогом истекает сразу, ожидающая записи — нет
+        OrderPlacementQueue shortLived = new OrderPlacementQueue(orderRepository, bookRepository, userRepository,
+                new TransactionTemplate(transactionManager), false, 3, 10, Duration.ZERO, Duration.ZERO);
+        OrderTicketDTO ticket = shortLived.submit(7L, List.of(1L));
+
+        assertEquals(OrderTicketDTO.Status.QUEUED,
+                shortLived.status(ticket.getTicket(), 7L, false).orElseThrow().getStatus());
+
+        shortLived.writeQueued(0);
+        assertTrue(shortLived.status(ticket.getTicket(), 7L, false).isEmpty());
+    }
+}
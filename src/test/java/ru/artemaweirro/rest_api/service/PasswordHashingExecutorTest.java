@@ -0,0 +1,63 @@
+package ru.artemaweirro.rest_api.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.artemaweirro.rest_api.dto.HashingStatsDTO;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    // Один поток и очередь на одну задачу
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingExecutor.shutdown();
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> running = passwordHashingExecutor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        });
+        started.await();
+        CompletableFuture<String> queued = passwordHashingExecutor.submit(() -> "second");
+
+        assertThrows(RejectedExecutionException.class, () -> passwordHashingExecutor.submit(() -> "third"));
+
+        HashingStatsDTO stats = passwordHashingExecutor.stats();
+        assertEquals(1, stats.getQueued());
+        assertEquals(1, stats.getRejected());
+        // Те же показатели — в Micrometer
+        assertEquals(1, meterRegistry.get("executor.queued").tag("name", "password-hashing").gauge().value());
+        assertEquals(1, meterRegistry.get("auth.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("first", running.get());
+        assertEquals("second", queued.get());
+        assertEquals(2, passwordHashingExecutor.stats().getCompleted());
+        assertEquals(2, meterRegistry.get("auth.hashing.duration").timer().count());
+        assertEquals(2, meterRegistry.get("auth.hashing.wait").timer().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
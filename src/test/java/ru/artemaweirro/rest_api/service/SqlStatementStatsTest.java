@@ -0,0 +1,89 @@
+package ru.artemaweirro.rest_api.service;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Test;
+import ru.artemaweirro.rest_api.dto.SqlStatementStatsDTO;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatementStatsTest {
+
+    private final SqlStatementStats sqlStatementStats = new SqlStatementStats(Duration.ofMillis(200), 0, 2);
+
+    private static QueryInfo query(String sql, Object... params) throws NoSuchMethodException {
+        QueryInfo queryInfo = new QueryInfo(sql);
+        List<ParameterSetOperation> operations = new ArrayList<>();
+        for (int i = 0; i < params.length; i++) {
+            operations.add(new ParameterSetOperation(
+                    PreparedStatement.class.getMethod("setObject", int.class, Object.class),
+                    new Object[]{i + 1, params[i]}));
+        }
+        queryInfo.getParametersList().add(operations);
+        return queryInfo;
+    }
+
+    private void execute(long millis, QueryInfo queryInfo) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        executionInfo.setElapsedTime(millis);
+        sqlStatementStats.afterQuery(executionInfo, List.of(queryInfo));
+    }
+
+    @Test
+    void testAggregatesByStatementShape() throws Exception {
+        execute(5, query("select * from books\n  where id = ?", 1L));
+        execute(15, query("select * from books where id = ?", 2L));
+        execute(40, query("select * from order_books where order_id in (?, ?, ?)", 1L, 2L, 3L));
+        execute(60, query("select * from order_books where order_id in (?,?)", 4L, 5L));
+
+        List<SqlStatementStatsDTO> stats = sqlStatementStats.stats();
+
+        assertEquals(2, stats.size());
+        // По убыванию суммарного времени
+        SqlStatementStatsDTO batch = stats.get(0);
+        assertEquals("select * from order_books where order_id in (?, ...)", batch.getStatement());
+        assertEquals(2, batch.getCount());
+        assertEquals(100, batch.getTotalMillis(), 1e-9);
+        assertEquals(60, batch.getMaxMillis(), 1e-9);
+
+        SqlStatementStatsDTO byId = stats.get(1);
+        assertEquals("select * from books where id = ?", byId.getStatement());
+        assertEquals(2, byId.getCount());
+        assertEquals(10, byId.getAverageMillis(), 1e-9);
+    }
+
+    @Test
+    void testLimitsNumberOfStatementShapes() throws Exception {
+        execute(1, query("select 1"));
+        execute(1, query("select 2"));
+        execute(1, query("select 3"));
+        execute(1, query("select 4"));
+
+        List<SqlStatementStatsDTO> stats = sqlStatementStats.stats();
+
+        assertEquals(3, stats.size());
+        assertTrue(stats.stream().anyMatch(s -> s.getStatement().equals("(другие запросы)") && s.getCount() == 2));
+    }
+
+    @Test
+    void testParameterShapesHideValues() throws Exception {
+        String shapes = SqlStatementStats.parameterShapes(List.of(query("select ?", "secret-password", 7L, null)));
+
+        assertEquals("[String(15), Long, null]", shapes);
+    }
+
+    @Test
+    void testReset() throws Exception {
+        execute(1, query("select 1"));
+
+        sqlStatementStats.reset();
+
+        assertTrue(sqlStatementStats.stats().isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.artemaweirro.rest_api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.artemaweirro.rest_api.models.Role;
+import ru.artemaweirro.rest_api.models.User;
+import ru.artemaweirro.rest_api.repositories.UserRepository;
+import ru.artemaweirro.rest_api.security.AuthenticatedUser;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStateCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserStateCache userStateCache;
+
+    @BeforeEach
+    void setUp() {
+        userStateCache = new UserStateCache(userRepository, 100, Duration.ofMinutes(5));
+    }
+
+    private static User user(Role role) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("user");
+        user.setRole(role);
+        return user;
+    }
+
+    @Test
+    void testLoadedUserIsCached() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user(Role.USER)));
+
+        userStateCache.get("user");
+        userStateCache.get("user");
+
+        verify(userRepository, times(1)).findByUsername("user");
+    }
+
+    @Test
+    void testInvalidateDuringLoadDoesNotKeepStaleRole() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        // Первая загрузка читает роль ADMIN и ждёт, пока пользователя понизят и сбросят кэш
+        when(userRepository.findByUsername("user"))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+                    return Optional.of(user(Role.ADMIN));
+                })
+                .thenReturn(Optional.of(user(Role.USER)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<AuthenticatedUser>> inFlight = executor.submit(() -> userStateCache.get("user"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            userStateCache.invalidate("user");
+            invalidated.countDown();
+            assertEquals(Role.ADMIN, inFlight.get(5, TimeUnit.SECONDS).orElseThrow().role());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Устаревшая роль не осталась в кэше: следующий запрос снова читает БД
+        assertEquals(Role.USER, userStateCache.get("user").orElseThrow().role());
+        verify(userRepository, times(2)).findByUsername("user");
+    }
+}